@@ -0,0 +1,28 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.service.BookService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Счётчики книг в {@code ulab_edu.person} ведёт {@link BookService}, и только пока включено
+ * {@code book-stats.summary-enabled}. За время с выключенным свойством они могли отстать,
+ * поэтому при старте сверяются с таблицей книг.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "book-stats.summary-enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class BookStatsSummaryConfig {
+    private final BookService bookService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildStatsSummary() {
+        int rebuiltUsers = bookService.rebuildStatsSummary();
+        log.info("Book stats summary rebuilt for {} users", rebuiltUsers);
+    }
+}
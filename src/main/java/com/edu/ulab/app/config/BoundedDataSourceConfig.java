@@ -0,0 +1,44 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Ограниченная выдача соединений через {@link BoundedDataSource}, включается свойством
+ * {@code bounded-data-source.enabled}. Потоков Tomcat по умолчанию 200, а соединений Hikari 10:
+ * без ограничения лишние запросы толпятся внутри Hikari до его {@code connectionTimeout} в 30 секунд.
+ * Семафор выстраивает их в честную очередь и отказывает по своему короткому таймауту.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bounded-data-source.enabled", havingValue = "true")
+public class BoundedDataSourceConfig {
+    private static final String APPLICATION_DATA_SOURCE = "dataSource";
+    private static final int DEFAULT_PERMITS = 10;
+    private static final String DEFAULT_ACQUIRE_TIMEOUT = "5s";
+
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor(Environment environment) {
+        int permits = environment.getProperty("bounded-data-source.permits", Integer.class,
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class,
+                        DEFAULT_PERMITS));
+        Duration acquireTimeout = DurationStyle.detectAndParse(
+                environment.getProperty("bounded-data-source.acquire-timeout", DEFAULT_ACQUIRE_TIMEOUT));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (APPLICATION_DATA_SOURCE.equals(beanName)
+                        && bean instanceof DataSource dataSource && !(bean instanceof BoundedDataSource)) {
+                    return new BoundedDataSource(dataSource, permits, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
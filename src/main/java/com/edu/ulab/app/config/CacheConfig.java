@@ -0,0 +1,15 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Кэширование выполняется снаружи транзакции фасада: попадание в кэш не открывает транзакцию,
+ * а инвалидация происходит уже после коммита.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+    public static final String USER_BOOKS_CACHE = "userBooks";
+}
@@ -0,0 +1,56 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.entity.BookEntity;
+import com.edu.ulab.app.entity.UserEntity;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.net.URI;
+import java.util.OptionalLong;
+
+/**
+ * Регионы second-level cache Hibernate на локальном JCache от Caffeine.
+ * У каждого контекста свой {@link CacheManager}, регионы создаются заранее с ограничением по размеру,
+ * поэтому Hibernate настроен не создавать недостающие регионы сам.
+ * Региона {@link UserEntity} нет: юзер не кэшируется, кэшируется только его коллекция книг.
+ * Регион отметок времени не ограничен: вытеснение из него сделало бы кэш запросов устаревшим.
+ */
+@Configuration
+public class HibernateCacheConfig {
+    public static final String BOOK_REGION = BookEntity.class.getName();
+    public static final String USER_BOOK_SET_REGION = UserEntity.class.getName() + ".bookSet";
+
+    @Bean
+    public CacheManager hibernateCacheManager(@Value("${hibernate-cache.entity-max-size:10000}") long entityMaxSize,
+                                              @Value("${hibernate-cache.collection-max-size:10000}") long collectionMaxSize,
+                                              @Value("${hibernate-cache.query-max-size:1000}") long queryMaxSize) {
+        CaffeineCachingProvider provider = new CaffeineCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("hibernate-" + System.identityHashCode(provider)), getClass().getClassLoader());
+        cacheManager.createCache(BOOK_REGION, boundedRegion(entityMaxSize));
+        cacheManager.createCache(USER_BOOK_SET_REGION, boundedRegion(collectionMaxSize));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                boundedRegion(queryMaxSize));
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> boundedRegion(long maxSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        return configuration;
+    }
+}
@@ -0,0 +1,38 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.web.converter.UserBookProtobufHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Двоичные форматы для внутренних клиентов рядом с JSON. Smile и CBOR строятся из того же
+ * {@link Jackson2ObjectMapperBuilder}, что и JSON, поэтому модули и настройки Jackson у них общие.
+ * Какой формат выбран, решает Accept/Content-Type; JSON остаётся первым в {@code produces} и потому по умолчанию.
+ */
+@Configuration
+public class MessageConverterConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.createXmlMapper(false)
+                .factory(new SmileFactory())
+                .build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.createXmlMapper(false)
+                .factory(new CBORFactory())
+                .build());
+    }
+
+    @Bean
+    public UserBookProtobufHttpMessageConverter userBookProtobufHttpMessageConverter() {
+        return new UserBookProtobufHttpMessageConverter();
+    }
+}
@@ -0,0 +1,52 @@
+package com.edu.ulab.app.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Таймеры {@code @Timed} и подсчёт SQL-запросов на поток через datasource-proxy,
+ * тот же механизм, что у {@code SQLStatementCountValidator} в тестах.
+ * Прокси включается свойством {@code metrics.sql-statements.enabled} и оборачивает
+ * только DataSource приложения, остальные источники данных остаются как есть.
+ */
+@Configuration
+public class MetricsConfig {
+    public static final String FACADE_TIMER = "userbook.facade";
+    public static final String SERVICE_TIMER = "userbook.service";
+    public static final String SERVICE_ROWS = "userbook.service.rows";
+    public static final String REQUEST_SQL_STATEMENTS = "userbook.request.sql.statements";
+    public static final String SQL_STATEMENTS_ENABLED = "metrics.sql-statements.enabled";
+
+    private static final String APPLICATION_DATA_SOURCE = "dataSource";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = SQL_STATEMENTS_ENABLED, havingValue = "true")
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (APPLICATION_DATA_SOURCE.equals(beanName)
+                        && bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .countQuery()
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
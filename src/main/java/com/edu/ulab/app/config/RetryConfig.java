@@ -0,0 +1,38 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.RetryConfiguration;
+
+/**
+ * Повтор выполняется снаружи транзакции фасада: каждая попытка идёт в новой транзакции
+ * и заново читает версию юзера.
+ * У советника {@code @Retryable} и у транзакционного по умолчанию одинаковый
+ * {@link Ordered#LOWEST_PRECEDENCE}, и порядок между ними не определён, поэтому повтору
+ * явно задан приоритет на единицу выше.
+ */
+@Configuration
+@EnableRetry
+public class RetryConfig {
+    public static final int RETRY_ADVISOR_ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    /**
+     * Порядок задаётся в определении бина: сам советник создаётся раньше, чем успевают
+     * зарегистрироваться обычные {@code BeanPostProcessor}.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor retryAdvisorOrderPostProcessor() {
+        return beanFactory -> {
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+                if (RetryConfiguration.class.getName().equals(beanDefinition.getBeanClassName())) {
+                    beanDefinition.getPropertyValues().add("order", RETRY_ADVISOR_ORDER);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.index.UserBookIndex;
+import com.edu.ulab.app.index.UserBookIndexAspect;
+import com.edu.ulab.app.index.UserBookIndexLoader;
+import com.edu.ulab.app.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Индекс юзер → id книг в памяти узла, из которого {@code getUserWithBooks} отвечает без базы.
+ * Рассчитан на узел, через который идут все записи: изменения других узлов в индекс не попадают.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user-book-index.enabled", havingValue = "true")
+public class UserBookIndexConfig {
+
+    @Bean
+    public UserBookIndex userBookIndex() {
+        return new UserBookIndex();
+    }
+
+    @Bean
+    public UserBookIndexAspect userBookIndexAspect(UserBookIndex userBookIndex) {
+        return new UserBookIndexAspect(userBookIndex);
+    }
+
+    @Bean
+    public UserBookIndexLoader userBookIndexLoader(UserBookIndex userBookIndex,
+                                                   UserService userService,
+                                                   @Value("${user-book-index.snapshot-path}") Path snapshotPath) {
+        return new UserBookIndexLoader(userBookIndex, userService, snapshotPath);
+    }
+}
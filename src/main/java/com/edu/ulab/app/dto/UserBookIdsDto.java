@@ -0,0 +1,18 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBookIdsDto {
+    private Long userId;
+    private List<Long> bookIds;
+    private long version;
+}
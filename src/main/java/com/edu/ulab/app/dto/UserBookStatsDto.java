@@ -0,0 +1,22 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBookStatsDto {
+    private Long userId;
+    private long bookCount;
+    private long pageSum;
+    /**
+     * Авторы с наибольшим числом книг юзера, по убыванию числа книг.
+     */
+    private List<String> topAuthors;
+}
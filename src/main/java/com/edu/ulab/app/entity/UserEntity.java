@@ -4,6 +4,9 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -12,9 +15,16 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Set;
 
+/**
+ * Сам юзер не лежит в second-level cache: каждая запись книги меняет его version и счётчики книг
+ * bulk-update запросом, а Hibernate на такой запрос сбрасывает весь регион сущности.
+ * Кэшируется только коллекция {@link #bookSet}.
+ */
 @Getter
 @Setter
 @ToString
@@ -23,7 +33,8 @@ import java.util.Set;
 @Table(name = "person", schema = "ulab_edu")
 public class UserEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_id_seq")
+    @SequenceGenerator(name = "person_id_seq", sequenceName = "person_id_seq", schema = "ulab_edu", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -35,7 +46,21 @@ public class UserEntity {
     @Column(nullable = false)
     private int age;
 
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long bookCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long pageSum;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     @ToString.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OneToMany(mappedBy = "userEntity", cascade = {
             CascadeType.MERGE,
             CascadeType.PERSIST,
@@ -0,0 +1,93 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.dto.BookDto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разница между сохранёнными книгами юзера и книгами из запроса на обновление.
+ * Книга с теми же title, author и pageCount сохраняет свой id, оставшиеся сохранённые книги
+ * переиспользуются под изменённые, и только лишнее удаляется или вставляется.
+ * Id проставляются прямо в {@code requested}, вставляемые книги получают id после createBooks.
+ */
+final class BookDiff {
+    private final List<BookDto> requested;
+    private final List<BookDto> inserted = new ArrayList<>();
+    private final List<BookDto> updated = new ArrayList<>();
+    private final List<Long> deletedIds = new ArrayList<>();
+
+    private BookDiff(List<BookDto> requested) {
+        this.requested = requested;
+    }
+
+    static BookDiff between(List<BookDto> stored, List<BookDto> requested) {
+        BookDiff diff = new BookDiff(requested);
+
+        Map<BookContent, Deque<BookDto>> storedByContent = new HashMap<>();
+        stored.stream()
+                .sorted(Comparator.comparing(BookDto::getId))
+                .forEach(book -> storedByContent.computeIfAbsent(BookContent.of(book), key -> new ArrayDeque<>())
+                        .add(book));
+
+        List<BookDto> changed = new ArrayList<>();
+        for (BookDto book : requested) {
+            Deque<BookDto> sameBooks = storedByContent.get(BookContent.of(book));
+            BookDto unchanged = sameBooks == null ? null : sameBooks.poll();
+            if (unchanged != null) {
+                book.setId(unchanged.getId());
+            } else {
+                changed.add(book);
+            }
+        }
+
+        Iterator<BookDto> leftovers = storedByContent.values().stream()
+                .flatMap(Deque::stream)
+                .sorted(Comparator.comparing(BookDto::getId))
+                .iterator();
+        for (BookDto book : changed) {
+            if (leftovers.hasNext()) {
+                book.setId(leftovers.next().getId());
+                diff.updated.add(book);
+            } else {
+                diff.inserted.add(book);
+            }
+        }
+        leftovers.forEachRemaining(book -> diff.deletedIds.add(book.getId()));
+        return diff;
+    }
+
+    List<BookDto> inserted() {
+        return inserted;
+    }
+
+    List<BookDto> updated() {
+        return updated;
+    }
+
+    List<Long> deletedIds() {
+        return deletedIds;
+    }
+
+    boolean isEmpty() {
+        return inserted.isEmpty() && updated.isEmpty() && deletedIds.isEmpty();
+    }
+
+    List<Long> bookIds() {
+        return requested.stream()
+                .map(BookDto::getId)
+                .toList();
+    }
+
+    private record BookContent(String title, String author, long pageCount) {
+        static BookContent of(BookDto book) {
+            return new BookContent(book.getTitle(), book.getAuthor(), book.getPageCount());
+        }
+    }
+}
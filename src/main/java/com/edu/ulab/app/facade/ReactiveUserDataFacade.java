@@ -0,0 +1,171 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.ReactiveBookService;
+import com.edu.ulab.app.service.ReactiveUserService;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Неблокирующий вариант {@link UserDataFacade} поверх R2DBC, включается профилем {@code reactive}.
+ * Транзакции задаются через {@link TransactionalOperator}: {@code @Transactional} здесь неоднозначен,
+ * потому что рядом живёт блокирующий менеджер транзакций JPA.
+ */
+@Slf4j
+@Component
+@Profile("reactive")
+public class ReactiveUserDataFacade {
+    private final ReactiveUserService userService;
+    private final ReactiveBookService bookService;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final TransactionalOperator transactionalOperator;
+    private final Retry updateRetry;
+
+    public ReactiveUserDataFacade(ReactiveUserService userService,
+                                  ReactiveBookService bookService,
+                                  UserMapper userMapper,
+                                  BookMapper bookMapper,
+                                  TransactionalOperator transactionalOperator,
+                                  @Value("${user-update.retry.max-attempts}") int updateMaxAttempts,
+                                  @Value("${user-update.retry.delay-ms}") long updateDelayMs,
+                                  @Value("${user-update.retry.max-delay-ms}") long updateMaxDelayMs) {
+        this.userService = userService;
+        this.bookService = bookService;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.transactionalOperator = transactionalOperator;
+        this.updateRetry = Retry.backoff(updateMaxAttempts - 1, Duration.ofMillis(updateDelayMs))
+                .maxBackoff(Duration.ofMillis(updateMaxDelayMs))
+                .filter(OptimisticLockingFailureException.class::isInstance)
+                .onRetryExhaustedThrow((retrySpec, retrySignal) -> retrySignal.failure());
+    }
+
+    public Mono<UserBookResponse> createUserWithBooks(UserBookRequest userBookRequest) {
+        log.debug("Got user book create request: {}", userBookRequest);
+        UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
+
+        return userService.createUser(userDto)
+                .doOnNext(createdUser -> log.debug("Created user: {}", createdUser))
+                .flatMap(createdUser -> createBooks(createdUser, userBookRequest.getBookRequests()))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Оптимистичное обновление, как у {@link UserDataFacade#updateUserWithBooks}: версия юзера читается первой,
+     * а запись юзера проходит только при той же версии. Конфликт с конкурентом повторяется в новой транзакции,
+     * с {@code expectedVersion} (из If-Match) повтора нет: расхождение даёт {@link PreconditionFailedException}.
+     */
+    public Mono<UserBookResponse> updateUserWithBooks(UserBookUpdateRequest userBookRequest, Long expectedVersion) {
+        log.debug("Got user book update request: {}", userBookRequest);
+        UserDto userDto = userMapper.userUpdateRequestToUserDto(userBookRequest.getUserRequest());
+        Long userId = userDto.getId();
+
+        return Mono.defer(() -> userService.getUserVersion(userId))
+                .flatMap(version -> {
+                    if (expectedVersion != null && expectedVersion != version) {
+                        return Mono.error(new PreconditionFailedException(
+                                "User with id " + userId + " has version " + version + ", expected " + expectedVersion));
+                    }
+                    return userService.getUserById(userId)
+                            .flatMap(storedUser -> bookService.findBooksByUserId(userId)
+                                    .collectList()
+                                    .map(storedBooks -> BookDiff.between(storedBooks,
+                                            mapBookRequests(userId, userBookRequest.getBookRequests())))
+                                    .flatMap(bookDiff -> (storedUser.equals(userDto) && bookDiff.isEmpty()
+                                            ? Mono.just(version)
+                                            : updateUserAndBooks(userDto, version, expectedVersion, bookDiff))
+                                            .map(updatedVersion -> UserBookResponse.builder()
+                                                    .userId(userId)
+                                                    .booksIdList(bookDiff.bookIds())
+                                                    .version(updatedVersion)
+                                                    .build())));
+                })
+                .as(transactionalOperator::transactional)
+                .retryWhen(updateRetry);
+    }
+
+    public Mono<UserBookResponse> getUserWithBooks(Long userId) {
+        log.debug("Got user id: {}", userId);
+        return userService.getUserById(userId)
+                .flatMap(foundUser -> bookService.findBookIdsByUserId(userId)
+                        .collectList()
+                        .map(booksIdList -> UserBookResponse.builder()
+                                .userId(foundUser.getId())
+                                .booksIdList(booksIdList)
+                                .build()))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Void> deleteUserWithBooks(Long userId) {
+        log.debug("Got user id: {}", userId);
+        return userService.getUserById(userId)
+                .then(bookService.deleteAllByUserId(userId))
+                .then(userService.deleteUserById(userId))
+                .doOnSuccess(ignored -> log.debug("Deleted user by id: {}", userId))
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Long> updateUserAndBooks(UserDto userDto, long version, Long expectedVersion, BookDiff bookDiff) {
+        Long userId = userDto.getId();
+        return userService.updateUser(userDto, version)
+                .onErrorMap(OptimisticLockingFailureException.class, e -> expectedVersion == null
+                        ? e
+                        : new PreconditionFailedException(
+                                "User with id " + userId + " was modified after version " + expectedVersion))
+                .doOnNext(updatedUser -> log.debug("Updated user: {}", updatedUser))
+                .then(applyBookDiff(userId, bookDiff))
+                .then(userService.getUserVersion(userId));
+    }
+
+    private Mono<Void> applyBookDiff(Long userId, BookDiff bookDiff) {
+        if (bookDiff.isEmpty()) {
+            log.debug("Books of user with id {} are unchanged", userId);
+            return Mono.empty();
+        }
+        return bookService.deleteBooksByIds(userId, bookDiff.deletedIds())
+                .doOnNext(deletedBooks -> log.debug("Deleted {} books of user with id {}", deletedBooks, userId))
+                .thenMany(bookService.updateBooks(bookDiff.updated()))
+                .thenMany(bookService.createBooks(bookDiff.inserted()))
+                .then();
+    }
+
+    private Mono<UserBookResponse> createBooks(UserDto userDto, List<BookRequest> bookRequests) {
+        return bookService.createBooks(mapBookRequests(userDto.getId(), bookRequests))
+                .map(BookDto::getId)
+                .collectList()
+                .map(booksIdList -> UserBookResponse.builder()
+                        .userId(userDto.getId())
+                        .booksIdList(booksIdList)
+                        .build());
+    }
+
+    private List<BookDto> mapBookRequests(Long userId, List<BookRequest> bookRequests) {
+        if (bookRequests == null) {
+            return List.of();
+        }
+        return bookRequests.stream()
+                .filter(Objects::nonNull)
+                .map(bookMapper::bookRequestToBookDto)
+                .peek(bookDto -> bookDto.setUserId(userId))
+                .toList();
+    }
+}
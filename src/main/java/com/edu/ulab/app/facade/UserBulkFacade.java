@@ -0,0 +1,188 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.MetricsConfig;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookImportResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковые импорт и экспорт юзеров с книгами.
+ * Вход читается по одному элементу JSON-массива или NDJSON-потока, запись идёт пачками,
+ * а упавшая пачка переписывается поэлементно, чтобы ошибка одной записи не роняла соседние;
+ * результат по каждому элементу сразу пишется в ответ строкой NDJSON.
+ * Экспорт читает таблицы серверным курсором, поэтому объём памяти не зависит от их размера.
+ */
+@Slf4j
+@Component
+public class UserBulkFacade {
+    private final UserDataFacade userDataFacade;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public UserBulkFacade(UserDataFacade userDataFacade,
+                          UserService userService,
+                          ObjectMapper objectMapper,
+                          @Value("${bulk-import.batch-size}") int batchSize) {
+        this.userDataFacade = userDataFacade;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "import"}, histogram = true)
+    public void importUsersWithBooks(InputStream inputStream, OutputStream outputStream) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream);
+             JsonGenerator generator = createNdjsonGenerator(outputStream)) {
+            List<UserBookRequest> batch = new ArrayList<>(batchSize);
+            long batchStart = 0;
+
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+            try {
+                while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                    batch.add(parser.readValueAs(UserBookRequest.class));
+                    if (batch.size() == batchSize) {
+                        writeBatch(generator, batch, batchStart);
+                        batchStart += batch.size();
+                        batch.clear();
+                    }
+                    token = parser.nextToken();
+                }
+            } catch (JsonProcessingException e) {
+                log.info("Bulk import stopped on malformed input at item {}: {}", batchStart + batch.size(), e.getMessage());
+                writeBatch(generator, batch, batchStart);
+                writeResult(generator, UserBookImportResponse.builder()
+                        .index(batchStart + batch.size())
+                        .errorMessage("Malformed input: " + e.getOriginalMessage())
+                        .build());
+                return;
+            }
+            writeBatch(generator, batch, batchStart);
+            log.info("Bulk import finished: {} items", batchStart + batch.size());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "export"}, histogram = true)
+    public void exportUsersWithBooks(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = createNdjsonGenerator(outputStream)) {
+            userService.forEachUserWithBookIds(userBookIds -> {
+                try {
+                    generator.writeObject(UserBookResponse.builder()
+                            .userId(userBookIds.getUserId())
+                            .booksIdList(userBookIds.getBookIds())
+                            .build());
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeBatch(JsonGenerator generator, List<UserBookRequest> batch, long batchStart) throws IOException {
+        List<UserBookRequest> validRequests = new ArrayList<>(batch.size());
+        List<Long> validIndexes = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            UserBookRequest request = batch.get(i);
+            if (request == null || request.getUserRequest() == null) {
+                writeResult(generator, UserBookImportResponse.builder()
+                        .index(batchStart + i)
+                        .errorMessage("userRequest is required")
+                        .build());
+            } else {
+                validRequests.add(request);
+                validIndexes.add(batchStart + i);
+            }
+        }
+        if (validRequests.isEmpty()) {
+            generator.flush();
+            return;
+        }
+
+        try {
+            List<UserBookResponse> responses = userDataFacade.createUsersWithBooks(validRequests);
+            for (int i = 0; i < responses.size(); i++) {
+                writeCreated(generator, validIndexes.get(i), responses.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Bulk import batch starting at item {} failed, retrying items one by one: {}",
+                    batchStart, e.getMessage());
+            writeOneByOne(generator, validRequests, validIndexes);
+        }
+        generator.flush();
+    }
+
+    /**
+     * Пачка уже откатилась целиком, поэтому каждый элемент пишется заново в своей транзакции:
+     * ошибку получает только тот элемент, на котором упала БД или обработка запроса.
+     * Импорт прерывает только {@link IOException} записи ответа.
+     */
+    private void writeOneByOne(JsonGenerator generator, List<UserBookRequest> requests, List<Long> indexes)
+            throws IOException {
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                writeCreated(generator, indexes.get(i), userDataFacade.createUserWithBooks(requests.get(i)));
+            } catch (RuntimeException e) {
+                log.error("Bulk import item {} failed: {}", indexes.get(i), e.getMessage());
+                writeResult(generator, UserBookImportResponse.builder()
+                        .index(indexes.get(i))
+                        .errorMessage(errorMessage(e))
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * Причина без сообщения (например, {@link NullPointerException}) всё равно должна дать непустую ошибку,
+     * иначе строка результата выглядит как успешная.
+     */
+    private static String errorMessage(RuntimeException e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    private void writeCreated(JsonGenerator generator, long index, UserBookResponse response) throws IOException {
+        writeResult(generator, UserBookImportResponse.builder()
+                .index(index)
+                .userId(response.getUserId())
+                .booksIdList(response.getBooksIdList())
+                .build());
+    }
+
+    private JsonGenerator createNdjsonGenerator(OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private void writeResult(JsonGenerator generator, UserBookImportResponse result) throws IOException {
+        generator.writeObject(result);
+        generator.writeRaw('\n');
+    }
+}
@@ -1,52 +1,78 @@
 package com.edu.ulab.app.facade;
 
+import com.edu.ulab.app.config.CacheConfig;
+import com.edu.ulab.app.config.MetricsConfig;
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.index.UserBookIndex;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.service.BookService;
 import com.edu.ulab.app.service.UserService;
-import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
-import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
 import com.edu.ulab.app.web.request.BookRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
 import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.response.UserBookPageResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBookStatsPageResponse;
+import com.edu.ulab.app.web.response.UserBookStatsResponse;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 @Slf4j
 @Component
 public class UserDataFacade {
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final UserService userService;
     private final BookService bookService;
     private final UserMapper userMapper;
     private final BookMapper bookMapper;
+    private final UserBookIndex userBookIndex;
 
-    public UserDataFacade(UserServiceImplTemplate userService,
-                          BookServiceImplTemplate bookService,
+    public UserDataFacade(UserService userService,
+                          BookService bookService,
                           UserMapper userMapper,
-                          BookMapper bookMapper) {
+                          BookMapper bookMapper,
+                          Optional<UserBookIndex> userBookIndex) {
         this.userService = userService;
         this.bookService = bookService;
         this.userMapper = userMapper;
         this.bookMapper = bookMapper;
+        this.userBookIndex = userBookIndex.orElse(null);
     }
 
+    @Transactional
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "create"}, histogram = true)
     public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest) {
-        log.info("Got user book create request: {}", userBookRequest);
+        log.debug("Got user book create request: {}", userBookRequest);
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
-        log.info("Mapped user request: {}", userDto);
+        log.debug("Mapped user request: {}", userDto);
 
         UserDto createdUser = userService.createUser(userDto);
-        log.info("Created user: {}", createdUser);
+        log.debug("Created user: {}", createdUser);
 
         List<BookRequest> bookRequests = userBookRequest.getBookRequests();
         List<Long> bookIdList = collectBookIdsFromBookRequests(createdUser, bookRequests);
-        log.info("Collected book ids: {}", bookIdList);
+        log.debug("Collected book ids: {}", bookIdList);
 
         return UserBookResponse.builder()
                 .userId(createdUser.getId())
@@ -54,72 +80,262 @@ public class UserDataFacade {
                 .build();
     }
 
-    public UserBookResponse updateUserWithBooks(UserBookUpdateRequest userBookRequest) {
-        log.info("Got user book update request: {}", userBookRequest);
-        UserDto userDto = userMapper.userUpdateRequestToUserDto(userBookRequest.getUserRequest());
-        log.info("Mapped user request: {}", userDto);
+    @Transactional
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "bulkCreate"}, histogram = true)
+    public List<UserBookResponse> createUsersWithBooks(List<UserBookRequest> userBookRequests) {
+        List<UserDto> createdUsers = userService.createUsers(userBookRequests.stream()
+                .map(UserBookRequest::getUserRequest)
+                .map(userMapper::userRequestToUserDto)
+                .toList());
+        log.debug("Created {} users", createdUsers.size());
+
+        List<List<BookDto>> booksPerUser = new ArrayList<>(createdUsers.size());
+        for (int i = 0; i < createdUsers.size(); i++) {
+            Long userId = createdUsers.get(i).getId();
+            List<BookRequest> bookRequests = userBookRequests.get(i).getBookRequests();
+            booksPerUser.add(bookRequests == null ? List.of() : bookRequests.stream()
+                    .filter(Objects::nonNull)
+                    .map(bookMapper::bookRequestToBookDto)
+                    .peek(bookDto -> bookDto.setUserId(userId))
+                    .toList());
+        }
+        List<BookDto> createdBooks = bookService.createBooks(booksPerUser.stream()
+                .flatMap(List::stream)
+                .toList());
+        log.debug("Created {} books", createdBooks.size());
+
+        List<UserBookResponse> responses = new ArrayList<>(createdUsers.size());
+        int bookOffset = 0;
+        for (int i = 0; i < createdUsers.size(); i++) {
+            int bookCount = booksPerUser.get(i).size();
+            responses.add(UserBookResponse.builder()
+                    .userId(createdUsers.get(i).getId())
+                    .booksIdList(createdBooks.subList(bookOffset, bookOffset + bookCount)
+                            .stream()
+                            .map(BookDto::getId)
+                            .toList())
+                    .build());
+            bookOffset += bookCount;
+        }
+        return responses;
+    }
 
-        UserDto updatedUser = userService.updateUser(userDto);
-        log.info("Updated user: {}", updatedUser);
+    /**
+     * Оптимистичное обновление: версия юзера читается первой, книги сравниваются без блокировок,
+     * а первая запись меняет юзера только при той же версии. Если версию успел поменять конкурент,
+     * попытка повторяется в новой транзакции. С {@code expectedVersion} (из If-Match) повтора нет:
+     * расхождение сразу даёт {@link PreconditionFailedException}.
+     */
+    @Retryable(value = OptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${user-update.retry.max-attempts}",
+            backoff = @Backoff(delayExpression = "${user-update.retry.delay-ms}",
+                    maxDelayExpression = "${user-update.retry.max-delay-ms}",
+                    multiplier = 2,
+                    random = true))
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USER_BOOKS_CACHE, key = "#userBookRequest.userRequest.id")
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "update"}, histogram = true)
+    public UserBookResponse updateUserWithBooks(UserBookUpdateRequest userBookRequest, Long expectedVersion) {
+        log.debug("Got user book update request: {}", userBookRequest);
+        UserDto userDto = userMapper.userUpdateRequestToUserDto(userBookRequest.getUserRequest());
+        log.debug("Mapped user request: {}", userDto);
 
         Long userId = userDto.getId();
-        deleteAllBooksByUserId(userId);
-        log.info("Deleted all books of user with id {}: ", userId);
+        long version = userService.getUserVersion(userId);
+        if (expectedVersion != null && expectedVersion != version) {
+            throw new PreconditionFailedException(
+                    "User with id " + userId + " has version " + version + ", expected " + expectedVersion);
+        }
+        UserDto storedUser = userService.getUserById(userId);
+        BookDiff bookDiff = BookDiff.between(bookService.findBooksByUserId(userId),
+                mapBookRequests(userId, userBookRequest.getBookRequests()));
 
-        List<BookRequest> bookRequests = userBookRequest.getBookRequests();
-        List<Long> bookIdList = collectBookIdsFromBookRequests(updatedUser, bookRequests);
-        log.info("Collected book ids: {}", bookIdList);
+        if (storedUser.equals(userDto) && bookDiff.isEmpty()) {
+            log.debug("User with id {} and his books are unchanged", userId);
+        } else {
+            try {
+                UserDto updatedUser = userService.updateUser(userDto, version);
+                log.debug("Updated user: {}", updatedUser);
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersion != null) {
+                    throw new PreconditionFailedException(
+                            "User with id " + userId + " was modified after version " + expectedVersion);
+                }
+                throw e;
+            }
+            if (!bookDiff.isEmpty()) {
+                applyBookDiff(userId, bookDiff);
+            }
+            version = userService.getUserVersion(userId);
+        }
+        List<Long> bookIdList = bookDiff.bookIds();
+        log.debug("Collected book ids: {}", bookIdList);
 
         return UserBookResponse.builder()
-                .userId(updatedUser.getId())
+                .userId(userId)
                 .booksIdList(bookIdList)
+                .version(version)
                 .build();
     }
 
-    private void deleteAllBooksByUserId(Long userId) {
-        bookService.getAllBooks()
+    private void applyBookDiff(Long userId, BookDiff bookDiff) {
+        if (!bookDiff.deletedIds().isEmpty()) {
+            int deletedBooks = bookService.deleteBooksByIds(userId, bookDiff.deletedIds());
+            log.debug("Deleted {} books of user with id {}", deletedBooks, userId);
+        }
+        if (!bookDiff.updated().isEmpty()) {
+            bookService.updateBooks(bookDiff.updated());
+            log.debug("Updated {} books of user with id {}", bookDiff.updated().size(), userId);
+        }
+        if (!bookDiff.inserted().isEmpty()) {
+            List<BookDto> createdBooks = bookService.createBooks(bookDiff.inserted());
+            for (int i = 0; i < createdBooks.size(); i++) {
+                bookDiff.inserted().get(i).setId(createdBooks.get(i).getId());
+            }
+            log.debug("Created {} books of user with id {}", createdBooks.size(), userId);
+        }
+    }
+
+    private List<Long> collectBookIdsFromBookRequests(UserDto updatedUser, List<BookRequest> bookRequests) {
+        List<BookDto> bookDtos = mapBookRequests(updatedUser.getId(), bookRequests);
+        return bookService.createBooks(bookDtos)
                 .stream()
-                .filter(book -> book.getUserId().equals(userId))
+                .peek(createdBook -> log.debug("Created book: {}", createdBook))
                 .map(BookDto::getId)
-                .forEach(bookService::deleteBookById);
+                .toList();
     }
 
-    private List<Long> collectBookIdsFromBookRequests(UserDto updatedUser, List<BookRequest> bookRequests) {
+    private List<BookDto> mapBookRequests(Long userId, List<BookRequest> bookRequests) {
+        if (bookRequests == null) {
+            return List.of();
+        }
         return bookRequests.stream()
                 .filter(Objects::nonNull)
                 .map(bookMapper::bookRequestToBookDto)
-                .peek(bookDto -> bookDto.setUserId(updatedUser.getId()))
-                .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                .map(bookService::createBook)
-                .peek(createdBook -> log.info("Created book: {}", createdBook))
-                .map(BookDto::getId)
+                .peek(bookDto -> bookDto.setUserId(userId))
+                .peek(mappedBookDto -> log.debug("mapped book: {}", mappedBookDto))
                 .toList();
     }
 
+    /**
+     * Версия юзера для ETag: из {@link UserBookIndex}, пока он готов, иначе один запрос по первичному ключу.
+     */
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "version"}, histogram = true)
+    public long getUserVersion(Long userId) {
+        if (userBookIndex != null && userBookIndex.isReady()) {
+            return userBookIndex.findVersion(userId).orElseThrow(
+                    () -> new NotFoundException("User with id " + userId + " not found"));
+        }
+        return userService.getUserVersion(userId);
+    }
+
+    /**
+     * Без транзакции фасада: ответ из {@link UserBookIndex} не должен брать соединение.
+     * Ветка базы идёт в read-only транзакции {@link UserService#getUserWithBookIds(Long)}.
+     * Версия в ответе прочитана вместе с книгами, поэтому ETag закэшированного ответа всегда
+     * соответствует его телу.
+     */
+    @Cacheable(cacheNames = CacheConfig.USER_BOOKS_CACHE, key = "#userId")
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "get"}, histogram = true)
     public UserBookResponse getUserWithBooks(Long userId) {
-        log.info("Got user id: {}", userId);
+        log.debug("Got user id: {}", userId);
 
-        UserDto foundUser = userService.getUserById(userId);
-        log.info("Found user: {}", foundUser);
+        if (userBookIndex != null && userBookIndex.isReady()) {
+            UserBookIndex.UserBooks userBooks = userBookIndex.findUserBooks(userId);
+            if (userBooks == null) {
+                throw new NotFoundException("User with id " + userId + " not found");
+            }
+            log.debug("Found user {} with {} book ids in index", userId, userBooks.bookIds().length);
+            return UserBookResponse.builder()
+                    .userId(userId)
+                    .booksIdList(Arrays.stream(userBooks.bookIds())
+                            .boxed()
+                            .toList())
+                    .version(userBooks.version())
+                    .build();
+        }
 
-        List<Long> booksIdList = bookService.getAllBooks()
-                .stream()
-                .filter(book -> book.getUserId().equals(userId))
-                .map(BookDto::getId)
-                .toList();
-        log.info("Collected book ids: {}", booksIdList);
+        UserBookIdsDto foundUser = userService.getUserWithBookIds(userId);
+        log.debug("Found user with book ids: {}", foundUser);
 
         return UserBookResponse.builder()
-                .userId(foundUser.getId())
-                .booksIdList(booksIdList)
+                .userId(foundUser.getUserId())
+                .booksIdList(foundUser.getBookIds())
+                .version(foundUser.getVersion())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "list"}, histogram = true)
+    public UserBookPageResponse getUsersWithBooks(Long afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserDto> users = userService.getUsers(afterId, pageSize);
+        Map<Long, List<Long>> bookIdsByUserId = bookService.findBookIdsByUserIds(users.stream()
+                .map(UserDto::getId)
+                .toList());
+        log.debug("Found {} users after id {}", users.size(), afterId);
+
+        return UserBookPageResponse.builder()
+                .users(users.stream()
+                        .map(user -> UserBookResponse.builder()
+                                .userId(user.getId())
+                                .booksIdList(bookIdsByUserId.getOrDefault(user.getId(), List.of()))
+                                .build())
+                        .toList())
+                .nextAfter(users.size() == pageSize ? users.get(users.size() - 1).getId() : null)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "stats"}, histogram = true)
+    public UserBookStatsResponse getUserBookStats(Long userId) {
+        log.debug("Got user id: {}", userId);
+        UserBookStatsDto stats = bookService.getStatsByUserId(userId);
+        log.debug("Found user book stats: {}", stats);
+        return mapUserBookStatsResponse(stats);
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "statsList"}, histogram = true)
+    public UserBookStatsPageResponse getUsersBookStats(Long afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserBookStatsDto> stats = bookService.getStats(afterId, pageSize);
+        log.debug("Found book stats of {} users after id {}", stats.size(), afterId);
+
+        return UserBookStatsPageResponse.builder()
+                .users(stats.stream()
+                        .map(UserDataFacade::mapUserBookStatsResponse)
+                        .toList())
+                .nextAfter(stats.size() == pageSize ? stats.get(stats.size() - 1).getUserId() : null)
+                .build();
+    }
+
+    private static UserBookStatsResponse mapUserBookStatsResponse(UserBookStatsDto stats) {
+        return UserBookStatsResponse.builder()
+                .userId(stats.getUserId())
+                .bookCount(stats.getBookCount())
+                .pageSum(stats.getPageSum())
+                .topAuthors(stats.getTopAuthors())
                 .build();
     }
 
-    public void deleteUserWithBooks(Long userId) {
-        log.info("Got user id: {}", userId);
-        userService.getUserById(userId);
-        deleteAllBooksByUserId(userId);
+    /**
+     * Первым делом блокирует строку юзера: иначе конкурентное обновление успевает вставить книгу между
+     * удалением книг и юзера, и удаление юзера падает на внешнем ключе. С {@code expectedVersion}
+     * (из If-Match) расхождение версий даёт {@link PreconditionFailedException}.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USER_BOOKS_CACHE, key = "#userId")
+    @Timed(value = MetricsConfig.FACADE_TIMER, extraTags = {"operation", "delete"}, histogram = true)
+    public void deleteUserWithBooks(Long userId, Long expectedVersion) {
+        log.debug("Got user id: {}", userId);
+        long version = userService.lockUserVersion(userId);
+        if (expectedVersion != null && expectedVersion != version) {
+            throw new PreconditionFailedException(
+                    "User with id " + userId + " has version " + version + ", expected " + expectedVersion);
+        }
+        bookService.deleteAllByUserId(userId);
         userService.deleteUserById(userId);
-        log.info("Deleted user by id: {}", userId);
+        log.debug("Deleted user by id: {}", userId);
     }
 }
@@ -0,0 +1,539 @@
+package com.edu.ulab.app.index;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс юзер → версия и id книг в памяти без упаковки в {@code Long}.
+ * <p>
+ * Юзеры лежат в открытой адресации с линейным пробированием: {@code long[]} ключей, параллельные
+ * {@code long[]} версий и {@code long[][]} отсортированных id книг, заполнение таблицы не выше половины.
+ * Массив книг юзера не меняется после публикации, любая запись заменяет его новым.
+ * <p>
+ * Версия повторяет {@code person.version}: её поднимает каждая запись юзера или его книг, поэтому
+ * ETag отдаётся из индекса без запроса в базу.
+ * <p>
+ * Память: 8 байт на книгу плюс 16 байт заголовка массива и 40–80 байт слотов таблицы на юзера
+ * (ссылки по 4 байта, compressed oops). Миллион книг у 100 тысяч юзеров занимает около 14,8 МБ,
+ * {@code Map<Long, List<Long>>} на тех же данных — примерно в 3 раза больше.
+ * <p>
+ * Снапшот пишется и читается через {@link MappedByteBuffer}: заголовок, затем для каждого юзера
+ * id, версия, число книг и их id. Размер файла ограничен 2 ГБ, это около 250 миллионов книг.
+ */
+public class UserBookIndex {
+    static final int SNAPSHOT_MAGIC = 0x55424958;
+    static final int SNAPSHOT_VERSION = 2;
+    static final int SNAPSHOT_HEADER_BYTES = 4 + 4 + 4 + 8;
+    static final int SNAPSHOT_USER_BYTES = 8 + 8 + 4;
+
+    private static final long EMPTY = 0L;
+    private static final long[] NO_BOOKS = new long[0];
+    private static final int MIN_CAPACITY = 16;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] userIds;
+    private long[] versions;
+    private long[][] bookIds;
+    private int userCount;
+    private long bookCount;
+    private volatile boolean ready;
+
+    public UserBookIndex() {
+        this(0);
+    }
+
+    UserBookIndex(int expectedUsers) {
+        allocate(capacityFor(expectedUsers));
+    }
+
+    /**
+     * Индекс заполнен и отвечает на чтения вместо базы.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * @return отсортированные id книг юзера или {@code null}, если юзера нет в индексе
+     */
+    public long[] findBookIds(long userId) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(userId);
+            return slot < 0 ? null : bookIds[slot].clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Версия и книги юзера, прочитанные под одной блокировкой.
+     */
+    public record UserBooks(long version, long[] bookIds) {
+    }
+
+    /**
+     * @return версия и отсортированные id книг юзера или {@code null}, если юзера нет в индексе
+     */
+    public UserBooks findUserBooks(long userId) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(userId);
+            return slot < 0 ? null : new UserBooks(versions[slot], bookIds[slot].clone());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return версия юзера или пустое значение, если юзера нет в индексе
+     */
+    public OptionalLong findVersion(long userId) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(userId);
+            return slot < 0 ? OptionalLong.empty() : OptionalLong.of(versions[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Новый юзер с нулевой версией, как после insert в {@code person}.
+     */
+    public void putUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            insertSlot(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Кладёт юзера с версией и книгами, прочитанными из базы, заменяя то, что о нём знал индекс.
+     */
+    public void putUser(long userId, long version, long... userBookIds) {
+        long[] sortedIds = sortedDistinct(userBookIds);
+        lock.writeLock().lock();
+        try {
+            int slot = insertSlot(userId);
+            bookCount += sortedIds.length - bookIds[slot].length;
+            bookIds[slot] = sortedIds.length == 0 ? NO_BOOKS : sortedIds;
+            versions[slot] = version;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Поднимает версию каждого из юзеров на единицу. Неизвестные индексу юзеры пропускаются.
+     */
+    public void incrementVersions(long... changedUserIds) {
+        long[] sortedIds = sortedDistinct(changedUserIds);
+        lock.writeLock().lock();
+        try {
+            for (long userId : sortedIds) {
+                int slot = findSlot(userId);
+                if (slot >= 0) {
+                    versions[slot]++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет юзера книги. Обходит всю таблицу, поэтому годится только для редких записей без id юзера.
+     *
+     * @return id юзера или пустое значение, если книги нет в индексе
+     */
+    public OptionalLong findUserId(long bookId) {
+        lock.readLock().lock();
+        try {
+            int slot = findBookSlot(bookId);
+            return slot < 0 ? OptionalLong.empty() : OptionalLong.of(userIds[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет книги юзеру, создавая его при необходимости, и поднимает его версию.
+     * Уже известные id не дублируются.
+     */
+    public void addBooks(long userId, long... addedIds) {
+        long[] sortedIds = sortedDistinct(addedIds);
+        lock.writeLock().lock();
+        try {
+            int slot = insertSlot(userId);
+            long[] merged = merge(bookIds[slot], sortedIds);
+            bookCount += merged.length - bookIds[slot].length;
+            bookIds[slot] = merged;
+            versions[slot]++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет книги юзера. Версия поднимается, только если что-то удалено, как и в базе.
+     */
+    public void removeBooks(long userId, long... removedIds) {
+        long[] sortedIds = sortedDistinct(removedIds);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(userId);
+            if (slot >= 0) {
+                long[] remaining = subtract(bookIds[slot], sortedIds);
+                if (remaining != bookIds[slot]) {
+                    bookCount -= bookIds[slot].length - remaining.length;
+                    bookIds[slot] = remaining;
+                    versions[slot]++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAllBooks(long userId) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(userId);
+            if (slot >= 0 && bookIds[slot].length > 0) {
+                bookCount -= bookIds[slot].length;
+                bookIds[slot] = NO_BOOKS;
+                versions[slot]++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет книгу, не зная её юзера, и поднимает версию юзера. Обходит всю таблицу, поэтому годится
+     * только для редких удалений по одному id.
+     */
+    public void removeBook(long bookId) {
+        lock.writeLock().lock();
+        try {
+            int slot = findBookSlot(bookId);
+            if (slot >= 0) {
+                bookIds[slot] = subtract(bookIds[slot], new long[]{bookId});
+                bookCount--;
+                versions[slot]++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(userId);
+            if (slot >= 0) {
+                bookCount -= bookIds[slot].length;
+                removeSlot(slot);
+                userCount--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int userCount() {
+        lock.readLock().lock();
+        try {
+            return userCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long bookCount() {
+        lock.readLock().lock();
+        try {
+            return bookCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Оценка занимаемой кучи: таблица, её массивы и массивы книг. Размеры заголовков взяты для 64-битной
+     * HotSpot с compressed oops, сам объект индекса и блокировка не учитываются.
+     */
+    public long estimatedSizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long size = 2 * (ARRAY_HEADER_BYTES + (long) Long.BYTES * userIds.length)
+                    + align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * bookIds.length);
+            for (int slot = 0; slot < userIds.length; slot++) {
+                if (userIds[slot] != EMPTY && bookIds[slot] != NO_BOOKS) {
+                    size += ARRAY_HEADER_BYTES + (long) Long.BYTES * bookIds[slot].length;
+                }
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Записывает снапшот во временный файл рядом с {@code path} и атомарно переименовывает его,
+     * поэтому прерванная запись не портит предыдущий снапшот.
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try {
+            long size = SNAPSHOT_HEADER_BYTES + (long) SNAPSHOT_USER_BYTES * userCount + (long) Long.BYTES * bookCount;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot of " + bookCount + " books does not fit into a mapped file");
+            }
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(SNAPSHOT_MAGIC)
+                        .putInt(SNAPSHOT_VERSION)
+                        .putInt(userCount)
+                        .putLong(bookCount);
+                for (int slot = 0; slot < userIds.length; slot++) {
+                    if (userIds[slot] != EMPTY) {
+                        buffer.putLong(userIds[slot]).putLong(versions[slot]).putInt(bookIds[slot].length);
+                        for (long bookId : bookIds[slot]) {
+                            buffer.putLong(bookId);
+                        }
+                    }
+                }
+                buffer.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Заменяет содержимое индекса снапшотом. Таблица сразу выделяется под число юзеров из заголовка.
+     *
+     * @throws IOException если файл не читается или не является снапшотом этой версии
+     */
+    public void loadSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a user book index snapshot: " + path);
+            }
+            int snapshotUsers = buffer.getInt();
+            long snapshotBooks = buffer.getLong();
+            lock.writeLock().lock();
+            try {
+                allocate(capacityFor(snapshotUsers));
+                for (int i = 0; i < snapshotUsers; i++) {
+                    long userId = buffer.getLong();
+                    long version = buffer.getLong();
+                    long[] userBookIds = new long[buffer.getInt()];
+                    for (int j = 0; j < userBookIds.length; j++) {
+                        userBookIds[j] = buffer.getLong();
+                    }
+                    int slot = insertSlot(userId);
+                    bookIds[slot] = userBookIds.length == 0 ? NO_BOOKS : userBookIds;
+                    versions[slot] = version;
+                    bookCount += userBookIds.length;
+                }
+                if (bookCount != snapshotBooks || buffer.hasRemaining()) {
+                    allocate(MIN_CAPACITY);
+                    throw new IOException("Snapshot is corrupted: " + path);
+                }
+            } catch (BufferUnderflowException | NegativeArraySizeException e) {
+                allocate(MIN_CAPACITY);
+                throw new IOException("Snapshot is truncated: " + path, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        userIds = new long[capacity];
+        versions = new long[capacity];
+        bookIds = new long[capacity][];
+        userCount = 0;
+        bookCount = 0;
+    }
+
+    private int findSlot(long userId) {
+        int mask = userIds.length - 1;
+        for (int slot = home(userId, mask); userIds[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (userIds[slot] == userId) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int findBookSlot(long bookId) {
+        for (int slot = 0; slot < userIds.length; slot++) {
+            if (userIds[slot] != EMPTY && Arrays.binarySearch(bookIds[slot], bookId) >= 0) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int insertSlot(long userId) {
+        if (userId <= EMPTY) {
+            throw new IllegalArgumentException("User id must be positive: " + userId);
+        }
+        int existing = findSlot(userId);
+        if (existing >= 0) {
+            return existing;
+        }
+        if (2 * (userCount + 1) > userIds.length) {
+            rehash(userIds.length * 2);
+        }
+        int mask = userIds.length - 1;
+        int slot = home(userId, mask);
+        while (userIds[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        userIds[slot] = userId;
+        versions[slot] = 0;
+        bookIds[slot] = NO_BOOKS;
+        userCount++;
+        return slot;
+    }
+
+    /**
+     * Удаление со сдвигом назад: следующие записи цепочки переезжают в дыру, если их домашний слот
+     * не лежит между дырой и ними, поэтому надгробия не нужны.
+     */
+    private void removeSlot(int slot) {
+        int mask = userIds.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; userIds[next] != EMPTY; next = (next + 1) & mask) {
+            int home = home(userIds[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                userIds[hole] = userIds[next];
+                versions[hole] = versions[next];
+                bookIds[hole] = bookIds[next];
+                hole = next;
+            }
+        }
+        userIds[hole] = EMPTY;
+        versions[hole] = 0;
+        bookIds[hole] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldUserIds = userIds;
+        long[] oldVersions = versions;
+        long[][] oldBookIds = bookIds;
+        userIds = new long[capacity];
+        versions = new long[capacity];
+        bookIds = new long[capacity][];
+        int mask = capacity - 1;
+        for (int oldSlot = 0; oldSlot < oldUserIds.length; oldSlot++) {
+            if (oldUserIds[oldSlot] != EMPTY) {
+                int slot = home(oldUserIds[oldSlot], mask);
+                while (userIds[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                userIds[slot] = oldUserIds[oldSlot];
+                versions[slot] = oldVersions[oldSlot];
+                bookIds[slot] = oldBookIds[oldSlot];
+            }
+        }
+    }
+
+    private static int home(long userId, int mask) {
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static int capacityFor(int expectedUsers) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedUsers) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static long[] sortedDistinct(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    private static long[] merge(long[] left, long[] right) {
+        if (right.length == 0) {
+            return left;
+        }
+        long[] merged = new long[left.length + right.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.length || j < right.length) {
+            if (j == right.length || i < left.length && left[i] < right[j]) {
+                merged[size++] = left[i++];
+            } else if (i == left.length || right[j] < left[i]) {
+                merged[size++] = right[j++];
+            } else {
+                merged[size++] = left[i++];
+                j++;
+            }
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    private static long[] subtract(long[] source, long[] removed) {
+        long[] remaining = new long[source.length];
+        int size = 0;
+        int j = 0;
+        for (long id : source) {
+            while (j < removed.length && removed[j] < id) {
+                j++;
+            }
+            if (j == removed.length || removed[j] != id) {
+                remaining[size++] = id;
+            }
+        }
+        if (size == source.length) {
+            return source;
+        }
+        return size == 0 ? NO_BOOKS : Arrays.copyOf(remaining, size);
+    }
+}
@@ -0,0 +1,124 @@
+package com.edu.ulab.app.index;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+
+/**
+ * Переносит в {@link UserBookIndex} записи юзеров и книг через {@code UserService}/{@code BookService}.
+ * Версия юзера поднимается там же, где её поднимает сервис в {@code person.version}.
+ * Внутри транзакции изменение применяется после коммита, чтобы откаченные записи не попали в индекс.
+ */
+@Aspect
+@RequiredArgsConstructor
+public class UserBookIndexAspect {
+    private final UserBookIndex userBookIndex;
+
+    @AfterReturning(pointcut = "execution(public * com.edu.ulab.app.service.UserService+.createUser(..))",
+            returning = "createdUser")
+    public void userCreated(UserDto createdUser) {
+        afterCommit(() -> userBookIndex.putUser(createdUser.getId()));
+    }
+
+    @AfterReturning(pointcut = "execution(public * com.edu.ulab.app.service.UserService+.createUsers(..))",
+            returning = "createdUsers")
+    public void usersCreated(List<UserDto> createdUsers) {
+        afterCommit(() -> createdUsers.forEach(user -> userBookIndex.putUser(user.getId())));
+    }
+
+    @AfterReturning("execution(public * com.edu.ulab.app.service.UserService+.updateUser(..)) && args(userDto, ..)")
+    public void userUpdated(UserDto userDto) {
+        afterCommit(() -> userBookIndex.incrementVersions(userDto.getId()));
+    }
+
+    @AfterReturning("execution(public * com.edu.ulab.app.service.UserService+.deleteUserById(..)) && args(userId)")
+    public void userDeleted(Long userId) {
+        afterCommit(() -> userBookIndex.removeUser(userId));
+    }
+
+    @AfterReturning(pointcut = "execution(public * com.edu.ulab.app.service.BookService+.createBook(..))",
+            returning = "createdBook")
+    public void bookCreated(BookDto createdBook) {
+        afterCommit(() -> userBookIndex.addBooks(createdBook.getUserId(), createdBook.getId()));
+    }
+
+    @AfterReturning(pointcut = "execution(public * com.edu.ulab.app.service.BookService+.createBooks(..))",
+            returning = "createdBooks")
+    public void booksCreated(List<BookDto> createdBooks) {
+        Map<Long, long[]> bookIdsByUserId = groupByUserId(createdBooks);
+        afterCommit(() -> bookIdsByUserId.forEach(userBookIndex::addBooks));
+    }
+
+    @AfterReturning("execution(public * com.edu.ulab.app.service.BookService+.updateBook(..)) && args(bookDto)")
+    public void bookUpdated(BookDto bookDto) {
+        afterCommit(() -> userBookIndex.incrementVersions(ownerIds(List.of(bookDto))));
+    }
+
+    @AfterReturning("execution(public * com.edu.ulab.app.service.BookService+.updateBooks(..)) && args(bookDtos)")
+    public void booksUpdated(List<BookDto> bookDtos) {
+        afterCommit(() -> userBookIndex.incrementVersions(ownerIds(bookDtos)));
+    }
+
+    @AfterReturning("execution(public * com.edu.ulab.app.service.BookService+.deleteBookById(..)) && args(bookId)")
+    public void bookDeleted(Long bookId) {
+        afterCommit(() -> userBookIndex.removeBook(bookId));
+    }
+
+    @AfterReturning("execution(public * com.edu.ulab.app.service.BookService+.deleteAllByUserId(..)) && args(userId)")
+    public void allBooksDeleted(Long userId) {
+        afterCommit(() -> userBookIndex.removeAllBooks(userId));
+    }
+
+    @AfterReturning("execution(public * com.edu.ulab.app.service.BookService+.deleteBooksByIds(..)) "
+            + "&& args(userId, bookIds)")
+    public void booksDeleted(Long userId, Collection<Long> bookIds) {
+        long[] deletedIds = bookIds.stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        afterCommit(() -> userBookIndex.removeBooks(userId, deletedIds));
+    }
+
+    /**
+     * Юзеры обновлённых книг. Без {@code userId} в книге юзер ищется обходом индекса.
+     */
+    private long[] ownerIds(List<BookDto> books) {
+        return books.stream()
+                .map(book -> book.getUserId() != null
+                        ? OptionalLong.of(book.getUserId())
+                        : userBookIndex.findUserId(book.getId()))
+                .filter(OptionalLong::isPresent)
+                .mapToLong(OptionalLong::getAsLong)
+                .toArray();
+    }
+
+    private static Map<Long, long[]> groupByUserId(List<BookDto> books) {
+        return books.stream()
+                .collect(Collectors.groupingBy(BookDto::getUserId, Collectors.collectingAndThen(Collectors.toList(),
+                        userBooks -> userBooks.stream()
+                                .mapToLong(BookDto::getId)
+                                .toArray())));
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.edu.ulab.app.index;
+
+import com.edu.ulab.app.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Заполняет {@link UserBookIndex} до старта веб-сервера и сохраняет снапшот после его остановки.
+ * <p>
+ * Снапшот читается вместо обхода {@code ulab_edu.book} и сразу удаляется: после падения узла
+ * индекс строится заново из базы, а не из файла, отставшего от записей. Снапшот верен, только пока
+ * в базу между остановкой и стартом не писали другие узлы.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class UserBookIndexLoader implements SmartLifecycle {
+    private final UserBookIndex userBookIndex;
+    private final UserService userService;
+    private final Path snapshotPath;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        long startedAt = System.nanoTime();
+        if (!loadSnapshot()) {
+            userService.forEachUserWithBookIds(user -> userBookIndex.putUser(user.getUserId(), user.getVersion(),
+                    user.getBookIds()
+                            .stream()
+                            .mapToLong(Long::longValue)
+                            .toArray()));
+            log.info("User book index rebuilt from database");
+        }
+        userBookIndex.markReady();
+        running = true;
+        log.info("User book index is ready: {} users, {} books, ~{} bytes, {} ms",
+                userBookIndex.userCount(), userBookIndex.bookCount(), userBookIndex.estimatedSizeInBytes(),
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            Files.createDirectories(snapshotPath.toAbsolutePath().getParent());
+            userBookIndex.writeSnapshot(snapshotPath);
+            log.info("User book index snapshot saved to {}", snapshotPath);
+        } catch (IOException e) {
+            log.error("Failed to save user book index snapshot to {}, next start rebuilds it from database",
+                    snapshotPath, e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Раньше веб-сервера, чтобы запросы не приходили в пустой индекс, и позже него при остановке.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private boolean loadSnapshot() {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return false;
+        }
+        try {
+            userBookIndex.loadSnapshot(snapshotPath);
+            log.info("User book index loaded from snapshot {}", snapshotPath);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to load user book index snapshot {}", snapshotPath, e);
+            return false;
+        } finally {
+            deleteSnapshot();
+        }
+    }
+
+    private void deleteSnapshot() {
+        try {
+            Files.deleteIfExists(snapshotPath);
+        } catch (IOException e) {
+            log.warn("Failed to delete user book index snapshot {}", snapshotPath, e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.entity.BookEntity;
 import com.edu.ulab.app.web.request.BookRequest;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface BookMapper {
@@ -12,7 +13,9 @@ public interface BookMapper {
 
     BookRequest bookDtoToBookRequest(BookDto bookDto);
 
+    @Mapping(target = "userEntity.id", source = "userId")
     BookEntity bookDtoToBookEntity(BookDto bookDto);
 
+    @Mapping(target = "userId", source = "userEntity.id")
     BookDto bookEntityToBookDto(BookEntity bookEntity);
 }
@@ -5,6 +5,7 @@ import com.edu.ulab.app.entity.UserEntity;
 import com.edu.ulab.app.web.request.UserRequest;
 import com.edu.ulab.app.web.request.UserUpdateRequest;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
@@ -16,6 +17,9 @@ public interface UserMapper {
 
     UserUpdateRequest userDtoToUserUpdateRequest(UserDto userDto);
 
+    @Mapping(target = "bookCount", ignore = true)
+    @Mapping(target = "pageSum", ignore = true)
+    @Mapping(target = "version", ignore = true)
     UserEntity userDtoToUserEntity(UserDto userDto);
 
     UserDto userEntityToUserDto(UserEntity userEntity);
@@ -0,0 +1,126 @@
+package com.edu.ulab.app.metrics;
+
+import com.edu.ulab.app.config.MetricsConfig;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Время каждого метода {@code UserService}/{@code BookService} и число прочитанных и записанных строк.
+ * Записью считаются методы с {@link WriteOperation}, строки берутся из результата или из числа затронутых строк.
+ * Тег service содержит класс реализации, поэтому движки JDBC и JPA различимы.
+ * Метры регистрируются один раз на набор тегов, а не на каждый вызов.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ServiceMetricsAspect {
+    private static final String READ = "read";
+    private static final String WRITTEN = "written";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TimerTags, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<RowTags, Counter> rowCounters = new ConcurrentHashMap<>();
+
+    @Around("execution(public * com.edu.ulab.app.service.UserService+.*(..)) || "
+            + "execution(public * com.edu.ulab.app.service.BookService+.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String service = joinPoint.getTarget().getClass().getSimpleName();
+        Method signatureMethod = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        String method = signatureMethod.getName();
+        boolean write = AnnotationUtils.findAnnotation(signatureMethod, WriteOperation.class) != null;
+
+        Object[] args = joinPoint.getArgs();
+        long[] streamedRows = new long[1];
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Consumer<?> consumer) {
+                args[i] = countingConsumer(consumer, streamedRows);
+            }
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed(args);
+            long rows = write && result instanceof Integer affectedRows ? affectedRows : rowCount(result);
+            countRows(service, write ? WRITTEN : READ, rows + streamedRows[0]);
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(timers.computeIfAbsent(new TimerTags(service, method, exception), this::registerTimer));
+        }
+    }
+
+    private void countRows(String service, String operation, long rows) {
+        if (rows > 0) {
+            rowCounters.computeIfAbsent(new RowTags(service, operation), this::registerRowCounter)
+                    .increment(rows);
+        }
+    }
+
+    private Timer registerTimer(TimerTags tags) {
+        return Timer.builder(MetricsConfig.SERVICE_TIMER)
+                .tag("service", tags.service())
+                .tag("method", tags.method())
+                .tag("exception", tags.exception())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter registerRowCounter(RowTags tags) {
+        return meterRegistry.counter(MetricsConfig.SERVICE_ROWS, "service", tags.service(), "operation", tags.operation());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<Object> countingConsumer(Consumer<?> consumer, long[] rows) {
+        Consumer<Object> delegate = (Consumer<Object>) consumer;
+        return item -> {
+            rows[0] += rowCount(item);
+            delegate.accept(item);
+        };
+    }
+
+    /**
+     * Строки по типу результата: DTO - одна строка, юзер с id книг - строка юзера и по строке на книгу,
+     * коллекции и словари - сумма по элементам.
+     */
+    static long rowCount(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.stream()
+                    .mapToLong(ServiceMetricsAspect::rowCount)
+                    .sum();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return rowCount(map.values());
+        }
+        if (result instanceof UserBookIdsDto userBookIds) {
+            return 1 + rowCount(userBookIds.getBookIds());
+        }
+        return 1;
+    }
+
+    private record TimerTags(String service, String method, String exception) {
+    }
+
+    private record RowTags(String service, String operation) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.edu.ulab.app.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Метод сервиса меняет строки в БД: {@link ServiceMetricsAspect} считает его строки записанными.
+ * Если такой метод возвращает {@code int}, это число затронутых строк.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WriteOperation {
+}
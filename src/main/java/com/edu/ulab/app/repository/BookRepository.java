@@ -1,9 +1,64 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.BookEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
 
 @Repository
 public interface BookRepository extends JpaRepository<BookEntity, Long> {
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<BookEntity> findAllByUserEntityId(Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select b.id from BookEntity b where b.userEntity.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    @Query("select b.userEntity.id as userId, b.id as bookId from BookEntity b " +
+            "where b.userEntity.id in :userIds order by b.id")
+    List<UserBookIdView> findIdsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Query("select b.author from BookEntity b where b.userEntity.id = :userId " +
+            "group by b.author order by count(b.id) desc, b.author")
+    List<String> findTopAuthorsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select b.userEntity.id as userId, b.author as author, count(b.id) as bookCount from BookEntity b " +
+            "where b.userEntity.id in :userIds " +
+            "group by b.userEntity.id, b.author order by b.userEntity.id, count(b.id) desc, b.author")
+    List<UserAuthorCountView> countAuthorsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Transactional
+    @Modifying
+    @Query("delete from BookEntity b where b.userEntity.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from BookEntity b where b.userEntity.id = :userId and b.id in :ids")
+    int deleteAllByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BookEntity b set b.title = :title, b.author = :author, b.pageCount = :pageCount where b.id = :id")
+    int updateBookById(@Param("id") Long id,
+                       @Param("title") String title,
+                       @Param("author") String author,
+                       @Param("pageCount") long pageCount);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from BookEntity b where b.id = :id")
+    int deleteBookById(@Param("id") Long id);
 }
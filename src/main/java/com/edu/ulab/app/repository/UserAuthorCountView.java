@@ -0,0 +1,12 @@
+package com.edu.ulab.app.repository;
+
+/**
+ * Число книг юзера одного автора.
+ */
+public interface UserAuthorCountView {
+    Long getUserId();
+
+    String getAuthor();
+
+    Long getBookCount();
+}
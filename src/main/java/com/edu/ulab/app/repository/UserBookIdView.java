@@ -0,0 +1,12 @@
+package com.edu.ulab.app.repository;
+
+/**
+ * Пара юзер - книга. Для юзера без книг bookId равен null.
+ */
+public interface UserBookIdView {
+    Long getUserId();
+
+    Long getVersion();
+
+    Long getBookId();
+}
@@ -0,0 +1,12 @@
+package com.edu.ulab.app.repository;
+
+/**
+ * Число книг и сумма страниц юзера.
+ */
+public interface UserBookStatsView {
+    Long getUserId();
+
+    Long getBookCount();
+
+    Long getPageSum();
+}
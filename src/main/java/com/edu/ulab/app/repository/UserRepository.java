@@ -1,9 +1,128 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.UserEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
+
+    @EntityGraph(attributePaths = "bookSet")
+    Optional<UserEntity> findWithBookSetById(Long id);
+
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id as userId, u.version as version, b.id as bookId " +
+            "from UserEntity u left join u.bookSet b order by u.id, b.id")
+    Stream<UserBookIdView> streamAllUserBookIds();
+
+    @Query("select u.version from UserEntity u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from UserEntity u where u.id = :id")
+    Optional<UserEntity> findForUpdateById(@Param("id") Long id);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update UserEntity u set u.fullName = :fullName, u.title = :title, u.age = :age, " +
+            "u.version = u.version + 1 where u.id = :id and u.version = :version")
+    int updateUserByIdAndVersion(@Param("id") Long id,
+                                 @Param("version") long version,
+                                 @Param("fullName") String fullName,
+                                 @Param("title") String title,
+                                 @Param("age") int age);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from UserEntity u where u.id = :id")
+    int deleteUserById(@Param("id") Long id);
+
+    @Query("select u.id as userId, count(b.id) as bookCount, coalesce(sum(b.pageCount), 0) as pageSum " +
+            "from UserEntity u left join u.bookSet b where u.id = :id group by u.id")
+    Optional<UserBookStatsView> findBookStatsById(@Param("id") Long id);
+
+    @Query("select u.id as userId, count(b.id) as bookCount, coalesce(sum(b.pageCount), 0) as pageSum " +
+            "from UserEntity u left join u.bookSet b where u.id > :afterId group by u.id order by u.id")
+    List<UserBookStatsView> findBookStatsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select u.id as userId, u.bookCount as bookCount, u.pageSum as pageSum " +
+            "from UserEntity u where u.id = :id")
+    Optional<UserBookStatsView> findBookStatsSummaryById(@Param("id") Long id);
+
+    @Query("select u.id as userId, u.bookCount as bookCount, u.pageSum as pageSum " +
+            "from UserEntity u where u.id > :afterId order by u.id")
+    List<UserBookStatsView> findBookStatsSummaryAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update UserEntity u set u.bookCount = u.bookCount + :bookCount, u.pageSum = u.pageSum + :pageSum " +
+            "where u.id = :id")
+    int addBookStats(@Param("id") Long id, @Param("bookCount") long bookCount, @Param("pageSum") long pageSum);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update UserEntity u set u.version = u.version + 1 where u.id in :ids")
+    int incrementVersions(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update UserEntity u set u.version = u.version + 1 " +
+            "where u.id in (select b.userEntity.id from BookEntity b where b.id in :bookIds)")
+    int incrementVersionsByBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "ulab_edu.person"))
+    @Query(nativeQuery = true, value = "update ulab_edu.person " +
+            "set page_sum = page_sum - (select b.page_count from ulab_edu.book b where b.id = :bookId) + :pageCount " +
+            "where id = (select b.person_id from ulab_edu.book b where b.id = :bookId)")
+    int replaceBookPageCountStats(@Param("bookId") Long bookId, @Param("pageCount") long pageCount);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "ulab_edu.person"))
+    @Query(nativeQuery = true, value = "update ulab_edu.person " +
+            "set book_count = book_count - 1, " +
+            "page_sum = page_sum - (select b.page_count from ulab_edu.book b where b.id = :bookId) " +
+            "where id = (select b.person_id from ulab_edu.book b where b.id = :bookId)")
+    int removeBookStats(@Param("bookId") Long bookId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "ulab_edu.person"))
+    @Query(nativeQuery = true, value = "update ulab_edu.person " +
+            "set book_count = (select count(*) from ulab_edu.book b where b.person_id = :id), " +
+            "page_sum = (select coalesce(sum(b.page_count), 0) from ulab_edu.book b where b.person_id = :id) " +
+            "where id = :id")
+    int recountBookStats(@Param("id") Long id);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "ulab_edu.person"))
+    @Query(nativeQuery = true, value = "update ulab_edu.person p " +
+            "set book_count = (select count(*) from ulab_edu.book b where b.person_id = p.id), " +
+            "page_sum = (select coalesce(sum(b.page_count), 0) from ulab_edu.book b where b.person_id = p.id) " +
+            "where p.book_count <> (select count(*) from ulab_edu.book b where b.person_id = p.id) " +
+            "or p.page_sum <> (select coalesce(sum(b.page_count), 0) from ulab_edu.book b where b.person_id = p.id)")
+    int rebuildBookStats();
 }
@@ -2,17 +2,56 @@ package com.edu.ulab.app.service;
 
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
+import com.edu.ulab.app.metrics.WriteOperation;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface BookService {
+    int TOP_AUTHORS_LIMIT = 3;
+
+    @WriteOperation
     BookDto createBook(BookDto userDto);
 
+    @WriteOperation
+    List<BookDto> createBooks(List<BookDto> bookDtos);
+
+    @WriteOperation
     BookDto updateBook(BookDto userDto);
 
+    @WriteOperation
+    List<BookDto> updateBooks(List<BookDto> bookDtos);
+
     BookDto getBookById(Long id);
 
     List<BookDto> getAllBooks();
 
+    List<BookDto> findBooksByUserId(Long userId);
+
+    List<Long> findBookIdsByUserId(Long userId);
+
+    Map<Long, List<Long>> findBookIdsByUserIds(Collection<Long> userIds);
+
+    @WriteOperation
     void deleteBookById(Long id);
+
+    @WriteOperation
+    int deleteAllByUserId(Long userId);
+
+    @WriteOperation
+    int deleteBooksByIds(Long userId, Collection<Long> ids);
+
+    UserBookStatsDto getStatsByUserId(Long userId);
+
+    List<UserBookStatsDto> getStats(Long afterId, int limit);
+
+    /**
+     * Пересчитывает счётчики книг в {@code ulab_edu.person} по таблице книг.
+     *
+     * @return число исправленных юзеров
+     */
+    @WriteOperation
+    int rebuildStatsSummary();
 }
@@ -0,0 +1,22 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.BookDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ReactiveBookService {
+    Flux<BookDto> createBooks(List<BookDto> bookDtos);
+
+    Flux<BookDto> updateBooks(List<BookDto> bookDtos);
+
+    Flux<BookDto> findBooksByUserId(Long userId);
+
+    Flux<Long> findBookIdsByUserId(Long userId);
+
+    Mono<Integer> deleteAllByUserId(Long userId);
+
+    Mono<Integer> deleteBooksByIds(Long userId, Collection<Long> ids);
+}
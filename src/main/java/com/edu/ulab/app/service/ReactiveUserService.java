@@ -0,0 +1,23 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserService {
+    Mono<UserDto> createUser(UserDto userDto);
+
+    /**
+     * Обновляет юзера, только если его версия всё ещё равна {@code expectedVersion}, и увеличивает её.
+     * Если версия уже другая, ошибка {@link org.springframework.dao.OptimisticLockingFailureException}.
+     */
+    Mono<UserDto> updateUser(UserDto userDto, long expectedVersion);
+
+    Mono<UserDto> getUserById(Long id);
+
+    /**
+     * Версия юзера с книгами, как у {@link UserService#getUserVersion(Long)}.
+     */
+    Mono<Long> getUserVersion(Long id);
+
+    Mono<Void> deleteUserById(Long id);
+}
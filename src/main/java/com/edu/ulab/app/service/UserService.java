@@ -1,13 +1,49 @@
 package com.edu.ulab.app.service;
 
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.metrics.WriteOperation;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
+    @WriteOperation
     UserDto createUser(UserDto userDto);
 
-    UserDto updateUser(UserDto userDto);
+    @WriteOperation
+    List<UserDto> createUsers(List<UserDto> userDtos);
+
+    /**
+     * Обновляет юзера, только если его версия всё ещё равна {@code expectedVersion}, и увеличивает её.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException если версия уже другая
+     */
+    @WriteOperation
+    UserDto updateUser(UserDto userDto, long expectedVersion);
 
     UserDto getUserById(Long id);
 
+    UserBookIdsDto getUserWithBookIds(Long id);
+
+    /**
+     * Версия юзера с книгами: растёт при обновлении юзера и при любом изменении его книг.
+     * Читается одним запросом по первичному ключу.
+     */
+    long getUserVersion(Long id);
+
+    /**
+     * Блокирует строку юзера до конца транзакции и возвращает его версию. Конкурентное обновление юзера
+     * и вставка его книг ждут коммита.
+     *
+     * @throws com.edu.ulab.app.exception.NotFoundException если юзера нет
+     */
+    long lockUserVersion(Long id);
+
+    List<UserDto> getUsers(Long afterId, int limit);
+
+    @WriteOperation
     void deleteUserById(Long id);
+
+    void forEachUserWithBookIds(Consumer<UserBookIdsDto> consumer);
 }
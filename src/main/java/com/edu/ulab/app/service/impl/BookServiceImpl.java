@@ -1,44 +1,132 @@
 package com.edu.ulab.app.service.impl;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
 import com.edu.ulab.app.entity.BookEntity;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.service.BookService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.UserAuthorCountView;
+import com.edu.ulab.app.repository.UserBookIdView;
+import com.edu.ulab.app.repository.UserBookStatsView;
+import com.edu.ulab.app.repository.UserRepository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "persistence.engine", havingValue = "jpa")
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService {
 
     private final BookRepository bookRepository;
 
+    private final UserRepository userRepository;
+
     private final BookMapper bookMapper;
 
+    @Value("${book-stats.summary-enabled:false}")
+    private boolean summaryEnabled;
+
     @Override
     public BookDto createBook(BookDto bookDto) {
         BookEntity bookEntity = bookMapper.bookDtoToBookEntity(bookDto);
         BookEntity savedBook = bookRepository.save(bookEntity);
-        return bookMapper.bookEntityToBookDto(savedBook);
+        BookDto createdBook = bookMapper.bookEntityToBookDto(savedBook);
+        if (summaryEnabled) {
+            userRepository.addBookStats(createdBook.getUserId(), 1, createdBook.getPageCount());
+        }
+        userRepository.incrementVersions(List.of(bookDto.getUserId()));
+        return createdBook;
+    }
+
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        List<BookEntity> bookEntities = bookDtos.stream()
+                .map(bookMapper::bookDtoToBookEntity)
+                .toList();
+        List<BookDto> createdBooks = bookRepository.saveAll(bookEntities)
+                .stream()
+                .map(bookMapper::bookEntityToBookDto)
+                .toList();
+        addStats(createdBooks);
+        if (!createdBooks.isEmpty()) {
+            userRepository.incrementVersions(createdBooks.stream()
+                    .map(BookDto::getUserId)
+                    .collect(Collectors.toSet()));
+        }
+        return createdBooks;
     }
 
     @Override
     public BookDto updateBook(BookDto bookDto) {
-        BookEntity foundBook = bookMapper.bookDtoToBookEntity(bookDto);
-        BookEntity updatedBook;
-        if (bookRepository.existsById(foundBook.getId())) {
-            updatedBook = bookRepository.save(foundBook);
-        } else {
-            log.info("Book not found by id: {}", bookDto.getId());
-            throw new NotFoundException("Book not found by id: " + bookDto.getId());
+        Long id = bookDto.getId();
+        if (summaryEnabled) {
+            userRepository.replaceBookPageCountStats(id, bookDto.getPageCount());
         }
-        return bookMapper.bookEntityToBookDto(updatedBook);
+        int rowsAffected = bookRepository.updateBookById(id,
+                bookDto.getTitle(),
+                bookDto.getAuthor(),
+                bookDto.getPageCount());
+        if (rowsAffected == 0) {
+            log.debug("Book not found by id: {}", id);
+            throw new NotFoundException("Book not found by id: " + id);
+        }
+        userRepository.incrementVersionsByBookIds(List.of(id));
+        return bookDto;
+    }
+
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return bookDtos;
+        }
+        Map<Long, BookEntity> foundBooks = bookRepository.findAllById(bookDtos.stream()
+                        .map(BookDto::getId)
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(BookEntity::getId, Function.identity()));
+        Map<Long, Long> pageSumDeltas = new HashMap<>();
+        List<BookEntity> updatedBooks = bookDtos.stream()
+                .map(bookDto -> {
+                    BookEntity bookEntity = foundBooks.get(bookDto.getId());
+                    if (bookEntity == null) {
+                        log.debug("Book not found by id: {}", bookDto.getId());
+                        throw new NotFoundException("Book not found by id: " + bookDto.getId());
+                    }
+                    pageSumDeltas.merge(bookEntity.getUserEntity().getId(),
+                            bookDto.getPageCount() - bookEntity.getPageCount(), Long::sum);
+                    bookEntity.setTitle(bookDto.getTitle());
+                    bookEntity.setAuthor(bookDto.getAuthor());
+                    bookEntity.setPageCount(bookDto.getPageCount());
+                    return bookEntity;
+                })
+                .toList();
+        List<BookDto> savedBooks = bookRepository.saveAll(updatedBooks)
+                .stream()
+                .map(bookMapper::bookEntityToBookDto)
+                .toList();
+        if (summaryEnabled) {
+            pageSumDeltas.forEach((userId, pageSumDelta) -> {
+                if (pageSumDelta != 0) {
+                    userRepository.addBookStats(userId, 0, pageSumDelta);
+                }
+            });
+        }
+        userRepository.incrementVersions(pageSumDeltas.keySet());
+        return savedBooks;
     }
 
     @Override
@@ -55,11 +143,129 @@ public class BookServiceImpl implements BookService {
                 .toList();
     }
 
+    @Override
+    public List<BookDto> findBooksByUserId(Long userId) {
+        return bookRepository.findAllByUserEntityId(userId)
+                .stream()
+                .map(bookMapper::bookEntityToBookDto)
+                .toList();
+    }
+
+    @Override
+    public List<Long> findBookIdsByUserId(Long userId) {
+        return bookRepository.findIdsByUserId(userId);
+    }
+
+    @Override
+    public Map<Long, List<Long>> findBookIdsByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return bookRepository.findIdsByUserIds(userIds)
+                .stream()
+                .collect(Collectors.groupingBy(UserBookIdView::getUserId,
+                        Collectors.mapping(UserBookIdView::getBookId, Collectors.toList())));
+    }
+
     @Override
     public void deleteBookById(Long id) {
-        if (bookRepository.existsById(id)) {
-            bookRepository.deleteById(id);
+        if (summaryEnabled) {
+            userRepository.removeBookStats(id);
         }
+        userRepository.incrementVersionsByBookIds(List.of(id));
+        if (bookRepository.deleteBookById(id) == 0) {
+            log.debug("Book not found by id: {}", id);
+            throw new NotFoundException("Book not found by id: " + id);
+        }
+    }
+
+    @Override
+    public int deleteAllByUserId(Long userId) {
+        int deletedBooks = bookRepository.deleteAllByUserId(userId);
+        recountStats(userId);
+        incrementVersion(userId, deletedBooks);
+        return deletedBooks;
+    }
+
+    @Override
+    public int deleteBooksByIds(Long userId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deletedBooks = bookRepository.deleteAllByUserIdAndIdIn(userId, ids);
+        recountStats(userId);
+        incrementVersion(userId, deletedBooks);
+        return deletedBooks;
+    }
+
+    @Override
+    public UserBookStatsDto getStatsByUserId(Long userId) {
+        UserBookStatsView stats = (summaryEnabled
+                ? userRepository.findBookStatsSummaryById(userId)
+                : userRepository.findBookStatsById(userId))
+                .orElseThrow(() -> new NotFoundException("User with id " + userId + " not found"));
+        return mapUserBookStatsDto(stats, stats.getBookCount() == 0 ? List.of() :
+                bookRepository.findTopAuthorsByUserId(userId, PageRequest.of(0, TOP_AUTHORS_LIMIT)));
+    }
+
+    @Override
+    public List<UserBookStatsDto> getStats(Long afterId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<UserBookStatsView> stats = summaryEnabled
+                ? userRepository.findBookStatsSummaryAfterId(afterId, page)
+                : userRepository.findBookStatsAfterId(afterId, page);
+        List<Long> userIdsWithBooks = stats.stream()
+                .filter(userStats -> userStats.getBookCount() > 0)
+                .map(UserBookStatsView::getUserId)
+                .toList();
+        Map<Long, List<String>> topAuthorsByUserId = userIdsWithBooks.isEmpty() ? Map.of() :
+                bookRepository.countAuthorsByUserIds(userIdsWithBooks)
+                        .stream()
+                        .collect(Collectors.groupingBy(UserAuthorCountView::getUserId,
+                                Collectors.mapping(UserAuthorCountView::getAuthor, Collectors.collectingAndThen(
+                                        Collectors.toList(),
+                                        authors -> authors.subList(0, Math.min(authors.size(), TOP_AUTHORS_LIMIT))))));
+        return stats.stream()
+                .map(userStats -> mapUserBookStatsDto(userStats,
+                        topAuthorsByUserId.getOrDefault(userStats.getUserId(), List.of())))
+                .toList();
+    }
+
+    @Override
+    public int rebuildStatsSummary() {
+        return userRepository.rebuildBookStats();
+    }
+
+    private void addStats(List<BookDto> createdBooks) {
+        if (!summaryEnabled) {
+            return;
+        }
+        createdBooks.stream()
+                .collect(Collectors.groupingBy(BookDto::getUserId,
+                        Collectors.summarizingLong(BookDto::getPageCount)))
+                .forEach((userId, pageCounts) ->
+                        userRepository.addBookStats(userId, pageCounts.getCount(), pageCounts.getSum()));
+    }
+
+    private void recountStats(Long userId) {
+        if (summaryEnabled) {
+            userRepository.recountBookStats(userId);
+        }
+    }
+
+    private void incrementVersion(Long userId, int changedBooks) {
+        if (changedBooks > 0) {
+            userRepository.incrementVersions(List.of(userId));
+        }
+    }
+
+    private static UserBookStatsDto mapUserBookStatsDto(UserBookStatsView stats, List<String> topAuthors) {
+        return UserBookStatsDto.builder()
+                .userId(stats.getUserId())
+                .bookCount(stats.getBookCount())
+                .pageSum(stats.getPageSum())
+                .topAuthors(topAuthors)
+                .build();
     }
 
     private BookEntity findBookById(Long id) {
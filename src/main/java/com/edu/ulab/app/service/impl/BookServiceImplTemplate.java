@@ -1,78 +1,259 @@
 package com.edu.ulab.app.service.impl;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.service.BookService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "persistence.engine", havingValue = "jdbc", matchIfMissing = true)
 @RequiredArgsConstructor
 public class BookServiceImplTemplate implements BookService {
 
+    private static final String INSERT_SQL =
+            "INSERT INTO ulab_edu.book(ID, TITLE, AUTHOR, PAGE_COUNT, PERSON_ID) " +
+            "VALUES (nextval('ulab_edu.book_id_seq'),?,?,?,?)";
+    private static final String UPDATE_SQL =
+            "UPDATE ulab_edu.book " +
+            "SET TITLE = ?, AUTHOR = ?, PAGE_COUNT = ? " +
+            "WHERE ID = ?";
+    private static final String SELECT_BY_ID_SQL =
+            "SELECT ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT FROM ulab_edu.book " +
+            "WHERE ID = ?";
+    private static final String SELECT_ALL_SQL =
+            "SELECT ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT FROM ulab_edu.book";
+    private static final String SELECT_BY_USER_ID_SQL =
+            "SELECT ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT FROM ulab_edu.book " +
+            "WHERE PERSON_ID = ?";
+    private static final String SELECT_IDS_BY_USER_ID_SQL =
+            "SELECT ID FROM ulab_edu.book " +
+            "WHERE PERSON_ID = ?";
+    private static final String SELECT_IDS_BY_USER_IDS_SQL =
+            "SELECT PERSON_ID, ID FROM ulab_edu.book " +
+            "WHERE PERSON_ID = ANY (?) " +
+            "ORDER BY ID";
+    private static final String DELETE_BY_ID_SQL =
+            "DELETE FROM ulab_edu.book " +
+            "WHERE ID = ?";
+    private static final String DELETE_BY_USER_ID_SQL =
+            "DELETE FROM ulab_edu.book " +
+            "WHERE PERSON_ID = ?";
+    private static final String DELETE_BY_IDS_SQL =
+            "DELETE FROM ulab_edu.book " +
+            "WHERE PERSON_ID = ? AND ID = ANY (?)";
+    private static final String SELECT_SUMMARY_BY_USER_ID_SQL =
+            "SELECT ID, BOOK_COUNT, PAGE_SUM FROM ulab_edu.person " +
+            "WHERE ID = ?";
+    private static final String SELECT_STATS_BY_USER_ID_SQL =
+            "SELECT P.ID, count(B.ID) AS BOOK_COUNT, coalesce(sum(B.PAGE_COUNT), 0) AS PAGE_SUM " +
+            "FROM ulab_edu.person P " +
+            "LEFT JOIN ulab_edu.book B ON B.PERSON_ID = P.ID " +
+            "WHERE P.ID = ? " +
+            "GROUP BY P.ID";
+    private static final String SELECT_TOP_AUTHORS_SQL =
+            "SELECT AUTHOR FROM ulab_edu.book " +
+            "WHERE PERSON_ID = ? " +
+            "GROUP BY AUTHOR " +
+            "ORDER BY count(*) DESC, AUTHOR " +
+            "LIMIT ?";
+    private static final String SELECT_SUMMARY_PAGE_SQL =
+            "SELECT ID, BOOK_COUNT, PAGE_SUM FROM ulab_edu.person " +
+            "WHERE ID > ? " +
+            "ORDER BY ID " +
+            "LIMIT ?";
+    private static final String SELECT_STATS_PAGE_SQL =
+            "SELECT P.ID, count(B.ID) AS BOOK_COUNT, coalesce(sum(B.PAGE_COUNT), 0) AS PAGE_SUM " +
+            "FROM (SELECT ID FROM ulab_edu.person WHERE ID > ? ORDER BY ID LIMIT ?) P " +
+            "LEFT JOIN ulab_edu.book B ON B.PERSON_ID = P.ID " +
+            "GROUP BY P.ID " +
+            "ORDER BY P.ID";
+    private static final String SELECT_AUTHORS_BY_USER_IDS_SQL =
+            "SELECT PERSON_ID, AUTHOR FROM ulab_edu.book " +
+            "WHERE PERSON_ID = ANY (?) " +
+            "GROUP BY PERSON_ID, AUTHOR " +
+            "ORDER BY PERSON_ID, count(*) DESC, AUTHOR";
+    private static final String REBUILD_STATS_SQL =
+            "UPDATE ulab_edu.person " +
+            "SET BOOK_COUNT = (SELECT count(*) FROM ulab_edu.book B WHERE B.PERSON_ID = PERSON.ID), " +
+            "PAGE_SUM = (SELECT coalesce(sum(B.PAGE_COUNT), 0) FROM ulab_edu.book B WHERE B.PERSON_ID = PERSON.ID) " +
+            "WHERE BOOK_COUNT <> (SELECT count(*) FROM ulab_edu.book B WHERE B.PERSON_ID = PERSON.ID) " +
+            "OR PAGE_SUM <> (SELECT coalesce(sum(B.PAGE_COUNT), 0) FROM ulab_edu.book B WHERE B.PERSON_ID = PERSON.ID)";
+    private static final String ADD_STATS_SQL =
+            "UPDATE ulab_edu.person " +
+            "SET BOOK_COUNT = BOOK_COUNT + ?, PAGE_SUM = PAGE_SUM + ? " +
+            "WHERE ID = ?";
+    private static final String REPLACE_PAGE_COUNT_STATS_SQL =
+            "UPDATE ulab_edu.person " +
+            "SET PAGE_SUM = PAGE_SUM - (SELECT PAGE_COUNT FROM ulab_edu.book WHERE ID = ?) + ? " +
+            "WHERE ID = (SELECT PERSON_ID FROM ulab_edu.book WHERE ID = ?)";
+    private static final String REMOVE_STATS_SQL =
+            "UPDATE ulab_edu.person " +
+            "SET BOOK_COUNT = BOOK_COUNT - 1, PAGE_SUM = PAGE_SUM - (SELECT PAGE_COUNT FROM ulab_edu.book WHERE ID = ?) " +
+            "WHERE ID = (SELECT PERSON_ID FROM ulab_edu.book WHERE ID = ?)";
+    private static final String RECOUNT_STATS_SQL =
+            "UPDATE ulab_edu.person " +
+            "SET BOOK_COUNT = (SELECT count(*) FROM ulab_edu.book WHERE PERSON_ID = ?), " +
+            "PAGE_SUM = (SELECT coalesce(sum(PAGE_COUNT), 0) FROM ulab_edu.book WHERE PERSON_ID = ?) " +
+            "WHERE ID = ?";
+
+    private static final String INCREMENT_VERSION_SQL =
+            "UPDATE ulab_edu.person " +
+            "SET VERSION = VERSION + 1 " +
+            "WHERE ID = ?";
+    private static final String INCREMENT_VERSIONS_BY_BOOK_IDS_SQL =
+            "UPDATE ulab_edu.person " +
+            "SET VERSION = VERSION + 1 " +
+            "WHERE ID IN (SELECT PERSON_ID FROM ulab_edu.book WHERE ID = ANY (?))";
+
+    private static final PreparedStatementCreatorFactory INSERT_STATEMENT = insertStatement();
+
     private final JdbcTemplate jdbcTemplate;
 
+    @Value("${book-stats.summary-enabled:false}")
+    private boolean summaryEnabled;
+
     @Override
     public BookDto createBook(BookDto bookDto) {
-        final String INSERT_SQL =
-                "INSERT INTO BOOK(TITLE, AUTHOR, PAGE_COUNT, USER_ID) " +
-                "VALUES (?,?,?,?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                    ps.setString(1, bookDto.getTitle());
-                    ps.setString(2, bookDto.getAuthor());
-                    ps.setLong(3, bookDto.getPageCount());
-                    ps.setLong(4, bookDto.getUserId());
-                    return ps;
-                }, keyHolder);
+        jdbcTemplate.update(INSERT_STATEMENT.newPreparedStatementCreator(new Object[]{
+                bookDto.getTitle(),
+                bookDto.getAuthor(),
+                bookDto.getPageCount(),
+                bookDto.getUserId()}), keyHolder);
 
         bookDto.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        if (summaryEnabled) {
+            jdbcTemplate.update(ADD_STATS_SQL, 1, bookDto.getPageCount(), bookDto.getUserId());
+        }
+        jdbcTemplate.update(INCREMENT_VERSION_SQL, bookDto.getUserId());
         return bookDto;
     }
 
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return bookDtos;
+        }
+        List<BookDto> createdBooks = jdbcTemplate.execute(
+                (Connection connection) -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                (PreparedStatement ps) -> {
+                    for (BookDto bookDto : bookDtos) {
+                        ps.setString(1, bookDto.getTitle());
+                        ps.setString(2, bookDto.getAuthor());
+                        ps.setLong(3, bookDto.getPageCount());
+                        ps.setLong(4, bookDto.getUserId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (BookDto bookDto : bookDtos) {
+                            if (!keys.next()) {
+                                throw new IllegalStateException("Generated book id was not returned");
+                            }
+                            bookDto.setId(keys.getLong(1));
+                        }
+                    }
+                    return bookDtos;
+                });
+        addStats(createdBooks);
+        jdbcTemplate.batchUpdate(INCREMENT_VERSION_SQL, createdBooks.stream()
+                .map(BookDto::getUserId)
+                .distinct()
+                .map(userId -> new Object[]{userId})
+                .toList());
+        return createdBooks;
+    }
+
     @Override
     public BookDto updateBook(BookDto bookDto) {
-        String UPDATE_SQL =
-                "UPDATE BOOK " +
-                "SET TITLE = ?, AUTHOR = ?, PAGE_COUNT = ? " +
-                "WHERE ID = ?";
         Long id = bookDto.getId();
+        if (summaryEnabled) {
+            jdbcTemplate.update(REPLACE_PAGE_COUNT_STATS_SQL, id, bookDto.getPageCount(), id);
+        }
         int rowsAffected = jdbcTemplate.update(UPDATE_SQL,
                 bookDto.getTitle(),
                 bookDto.getAuthor(),
                 bookDto.getPageCount(),
                 bookDto.getId());
         if (rowsAffected != 1) {
-            log.info("Book does not exist by id: {}", id);
+            log.debug("Book does not exist by id: {}", id);
             throw new NotFoundException("Book does not exist by id: " + id);
         }
+        incrementVersionsByBookIds(List.of(id));
         return bookDto;
     }
 
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return bookDtos;
+        }
+        if (summaryEnabled) {
+            jdbcTemplate.batchUpdate(REPLACE_PAGE_COUNT_STATS_SQL, bookDtos.stream()
+                    .map(bookDto -> new Object[]{bookDto.getId(), bookDto.getPageCount(), bookDto.getId()})
+                    .toList());
+        }
+        int[] rowsAffected = jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BookDto bookDto = bookDtos.get(i);
+                ps.setString(1, bookDto.getTitle());
+                ps.setString(2, bookDto.getAuthor());
+                ps.setLong(3, bookDto.getPageCount());
+                ps.setLong(4, bookDto.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return bookDtos.size();
+            }
+        });
+        for (int i = 0; i < rowsAffected.length; i++) {
+            if (rowsAffected[i] == 0) {
+                Long id = bookDtos.get(i).getId();
+                log.debug("Book does not exist by id: {}", id);
+                throw new NotFoundException("Book does not exist by id: " + id);
+            }
+        }
+        incrementVersionsByBookIds(bookDtos.stream()
+                .map(BookDto::getId)
+                .toList());
+        return bookDtos;
+    }
+
     @Override
     public BookDto getBookById(Long id) {
-        final String SELECT_BY_ID_SQL =
-                "SELECT ID, USER_ID, TITLE, AUTHOR, PAGE_COUNT FROM BOOK " +
-                "WHERE ID = ?";
         BookDto bookFound;
         try {
             bookFound = jdbcTemplate.queryForObject(SELECT_BY_ID_SQL, this::mapRowToBookDto, id);
         } catch (EmptyResultDataAccessException e) {
-            log.info("Book not found by id: {}", id);
+            log.debug("Book not found by id: {}", id);
             throw new NotFoundException("Book not found by id: " + id);
         }
         return bookFound;
@@ -80,30 +261,186 @@ public class BookServiceImplTemplate implements BookService {
 
     @Override
     public List<BookDto> getAllBooks() {
-        final String SELECT_BY_ID_SQL = "SELECT * FROM BOOK";
-        return jdbcTemplate.query(SELECT_BY_ID_SQL, this::mapRowToBookDto);
+        return jdbcTemplate.query(SELECT_ALL_SQL, this::mapRowToBookDto);
+    }
+
+    @Override
+    public List<BookDto> findBooksByUserId(Long userId) {
+        return jdbcTemplate.query(SELECT_BY_USER_ID_SQL, this::mapRowToBookDto, userId);
+    }
+
+    @Override
+    public List<Long> findBookIdsByUserId(Long userId) {
+        return jdbcTemplate.queryForList(SELECT_IDS_BY_USER_ID_SQL, Long.class, userId);
+    }
+
+    @Override
+    public Map<Long, List<Long>> findBookIdsByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<Long>> bookIdsByUserId = new HashMap<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_IDS_BY_USER_IDS_SQL);
+                    ps.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+                    return ps;
+                },
+                (ResultSet resultSet) -> {
+                    bookIdsByUserId.computeIfAbsent(resultSet.getLong(1), userId -> new ArrayList<>())
+                            .add(resultSet.getLong(2));
+                });
+        return bookIdsByUserId;
     }
 
     @Override
     public void deleteBookById(Long id) {
-        String DELETE_BY_ID_SQL =
-                "DELETE FROM BOOK " +
-                "WHERE ID = ?";
+        if (summaryEnabled) {
+            jdbcTemplate.update(REMOVE_STATS_SQL, id, id);
+        }
+        incrementVersionsByBookIds(List.of(id));
+        if (jdbcTemplate.update(DELETE_BY_ID_SQL, id) == 0) {
+            log.debug("Book does not exist by id: {}", id);
+            throw new NotFoundException("Book does not exist by id: " + id);
+        }
+    }
+
+    @Override
+    public int deleteAllByUserId(Long userId) {
+        int deletedBooks = jdbcTemplate.update(DELETE_BY_USER_ID_SQL, userId);
+        recountStats(userId);
+        incrementVersion(userId, deletedBooks);
+        return deletedBooks;
+    }
+
+    @Override
+    public int deleteBooksByIds(Long userId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deletedBooks = jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(DELETE_BY_IDS_SQL);
+            ps.setLong(1, userId);
+            ps.setArray(2, connection.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        });
+        recountStats(userId);
+        incrementVersion(userId, deletedBooks);
+        return deletedBooks;
+    }
+
+    @Override
+    public UserBookStatsDto getStatsByUserId(Long userId) {
+        UserBookStatsDto statsFound;
         try {
-            jdbcTemplate.update(DELETE_BY_ID_SQL, id);
+            statsFound = jdbcTemplate.queryForObject(
+                    summaryEnabled ? SELECT_SUMMARY_BY_USER_ID_SQL : SELECT_STATS_BY_USER_ID_SQL,
+                    this::mapRowToUserBookStatsDto, userId);
         } catch (EmptyResultDataAccessException e) {
-            log.info("Book does not exist by id: {}", id);
-            throw new NotFoundException("Book does not exist by id: " + id);
+            log.debug("User not found by id: {}", userId);
+            throw new NotFoundException("User not found by id: " + userId);
         }
+        statsFound.setTopAuthors(statsFound.getBookCount() == 0 ? List.of() :
+                jdbcTemplate.queryForList(SELECT_TOP_AUTHORS_SQL, String.class, userId, TOP_AUTHORS_LIMIT));
+        return statsFound;
+    }
+
+    @Override
+    public List<UserBookStatsDto> getStats(Long afterId, int limit) {
+        List<UserBookStatsDto> stats = jdbcTemplate.query(
+                summaryEnabled ? SELECT_SUMMARY_PAGE_SQL : SELECT_STATS_PAGE_SQL,
+                this::mapRowToUserBookStatsDto, afterId, limit);
+        Map<Long, List<String>> topAuthorsByUserId = new HashMap<>();
+        Object[] userIdsWithBooks = stats.stream()
+                .filter(userStats -> userStats.getBookCount() > 0)
+                .map(UserBookStatsDto::getUserId)
+                .toArray();
+        if (userIdsWithBooks.length > 0) {
+            jdbcTemplate.query(
+                    connection -> {
+                        PreparedStatement ps = connection.prepareStatement(SELECT_AUTHORS_BY_USER_IDS_SQL);
+                        ps.setArray(1, connection.createArrayOf("bigint", userIdsWithBooks));
+                        return ps;
+                    },
+                    (ResultSet resultSet) -> {
+                        List<String> topAuthors = topAuthorsByUserId.computeIfAbsent(resultSet.getLong(1),
+                                userId -> new ArrayList<>(TOP_AUTHORS_LIMIT));
+                        if (topAuthors.size() < TOP_AUTHORS_LIMIT) {
+                            topAuthors.add(resultSet.getString(2));
+                        }
+                    });
+        }
+        stats.forEach(userStats -> userStats.setTopAuthors(
+                topAuthorsByUserId.getOrDefault(userStats.getUserId(), List.of())));
+        return stats;
+    }
+
+    @Override
+    public int rebuildStatsSummary() {
+        return jdbcTemplate.update(REBUILD_STATS_SQL);
+    }
+
+    private void addStats(List<BookDto> createdBooks) {
+        if (!summaryEnabled) {
+            return;
+        }
+        Map<Long, LongSummaryStatistics> pageCountsByUserId = createdBooks.stream()
+                .collect(Collectors.groupingBy(BookDto::getUserId,
+                        Collectors.summarizingLong(BookDto::getPageCount)));
+        jdbcTemplate.batchUpdate(ADD_STATS_SQL, pageCountsByUserId.entrySet()
+                .stream()
+                .map(entry -> new Object[]{entry.getValue().getCount(), entry.getValue().getSum(), entry.getKey()})
+                .toList());
+    }
+
+    private void recountStats(Long userId) {
+        if (summaryEnabled) {
+            jdbcTemplate.update(RECOUNT_STATS_SQL, userId, userId, userId);
+        }
+    }
+
+    private void incrementVersion(Long userId, int changedBooks) {
+        if (changedBooks > 0) {
+            jdbcTemplate.update(INCREMENT_VERSION_SQL, userId);
+        }
+    }
+
+    private void incrementVersionsByBookIds(Collection<Long> bookIds) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INCREMENT_VERSIONS_BY_BOOK_IDS_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", bookIds.toArray()));
+            return ps;
+        });
+    }
+
+    private static PreparedStatementCreatorFactory insertStatement() {
+        PreparedStatementCreatorFactory statement = new PreparedStatementCreatorFactory(INSERT_SQL,
+                Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT);
+        statement.setGeneratedKeysColumnNames("id");
+        return statement;
+    }
+
+    /**
+     * Ожидает колонки в порядке ID, BOOK_COUNT, PAGE_SUM.
+     */
+    private UserBookStatsDto mapRowToUserBookStatsDto(ResultSet resultSet, int rowNum) throws SQLException {
+        return UserBookStatsDto.builder()
+                .userId(resultSet.getLong(1))
+                .bookCount(resultSet.getLong(2))
+                .pageSum(resultSet.getLong(3))
+                .build();
     }
 
+    /**
+     * Ожидает колонки в порядке ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT.
+     */
     private BookDto mapRowToBookDto(ResultSet resultSet, int rowNum) throws SQLException {
         return BookDto.builder()
-                .id(resultSet.getLong("ID"))
-                .userId(resultSet.getLong("USER_ID"))
-                .title(resultSet.getString("TITLE"))
-                .author(resultSet.getString("AUTHOR"))
-                .pageCount(resultSet.getLong("PAGE_COUNT"))
+                .id(resultSet.getLong(1))
+                .userId(resultSet.getLong(2))
+                .title(resultSet.getString(3))
+                .author(resultSet.getString(4))
+                .pageCount(resultSet.getLong(5))
                 .build();
     }
 }
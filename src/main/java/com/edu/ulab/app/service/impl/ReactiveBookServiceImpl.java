@@ -0,0 +1,179 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.service.ReactiveBookService;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+@Slf4j
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private static final String INCREMENT_VERSIONS_SQL =
+            "UPDATE PERSON SET VERSION = VERSION + 1 WHERE ID IN (:ids)";
+    private static final String INCREMENT_VERSIONS_BY_BOOK_IDS_SQL =
+            "UPDATE PERSON SET VERSION = VERSION + 1 " +
+            "WHERE ID IN (SELECT PERSON_ID FROM BOOK WHERE ID IN (:ids))";
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<BookDto> createBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return Flux.empty();
+        }
+        final String INSERT_SQL =
+                "INSERT INTO BOOK(ID, TITLE, AUTHOR, PAGE_COUNT, PERSON_ID) " +
+                "VALUES (nextval('ulab_edu.book_id_seq'), $1, $2, $3, $4)";
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(INSERT_SQL)
+                            .returnGeneratedValues("id");
+                    for (int i = 0; i < bookDtos.size(); i++) {
+                        BookDto bookDto = bookDtos.get(i);
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        statement.bind("$1", bookDto.getTitle())
+                                .bind("$2", bookDto.getAuthor())
+                                .bind("$3", bookDto.getPageCount())
+                                .bind("$4", bookDto.getUserId());
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> result.map((row, metadata) -> row.get("id", Number.class).longValue()));
+                })
+                .index()
+                .map(generatedId -> {
+                    BookDto bookDto = bookDtos.get(generatedId.getT1().intValue());
+                    bookDto.setId(generatedId.getT2());
+                    return bookDto;
+                })
+                .concatWith(incrementVersions(INCREMENT_VERSIONS_SQL, bookDtos.stream()
+                        .map(BookDto::getUserId)
+                        .distinct()
+                        .toList())
+                        .then(Mono.empty()));
+    }
+
+    @Override
+    public Flux<BookDto> updateBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return Flux.empty();
+        }
+        final String UPDATE_SQL =
+                "UPDATE BOOK " +
+                "SET TITLE = $1, AUTHOR = $2, PAGE_COUNT = $3 " +
+                "WHERE ID = $4";
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(UPDATE_SQL);
+                    for (int i = 0; i < bookDtos.size(); i++) {
+                        BookDto bookDto = bookDtos.get(i);
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        statement.bind("$1", bookDto.getTitle())
+                                .bind("$2", bookDto.getAuthor())
+                                .bind("$3", bookDto.getPageCount())
+                                .bind("$4", bookDto.getId());
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> result.getRowsUpdated());
+                })
+                .index()
+                .flatMap(rowsAffected -> {
+                    BookDto bookDto = bookDtos.get(rowsAffected.getT1().intValue());
+                    if (rowsAffected.getT2() == 0) {
+                        log.debug("Book does not exist by id: {}", bookDto.getId());
+                        return Mono.error(new NotFoundException("Book does not exist by id: " + bookDto.getId()));
+                    }
+                    return Mono.just(bookDto);
+                })
+                .concatWith(incrementVersions(INCREMENT_VERSIONS_BY_BOOK_IDS_SQL, bookDtos.stream()
+                        .map(BookDto::getId)
+                        .toList())
+                        .then(Mono.empty()));
+    }
+
+    @Override
+    public Flux<BookDto> findBooksByUserId(Long userId) {
+        final String SELECT_BY_USER_ID_SQL =
+                "SELECT ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT FROM BOOK " +
+                "WHERE PERSON_ID = :userId";
+        return databaseClient.sql(SELECT_BY_USER_ID_SQL)
+                .bind("userId", userId)
+                .map(row -> BookDto.builder()
+                        .id(row.get("ID", Number.class).longValue())
+                        .userId(row.get("PERSON_ID", Number.class).longValue())
+                        .title(row.get("TITLE", String.class))
+                        .author(row.get("AUTHOR", String.class))
+                        .pageCount(row.get("PAGE_COUNT", Number.class).longValue())
+                        .build())
+                .all();
+    }
+
+    @Override
+    public Flux<Long> findBookIdsByUserId(Long userId) {
+        final String SELECT_IDS_BY_USER_ID_SQL =
+                "SELECT ID FROM BOOK " +
+                "WHERE PERSON_ID = :userId " +
+                "ORDER BY ID";
+        return databaseClient.sql(SELECT_IDS_BY_USER_ID_SQL)
+                .bind("userId", userId)
+                .map(row -> row.get("ID", Number.class).longValue())
+                .all();
+    }
+
+    @Override
+    public Mono<Integer> deleteAllByUserId(Long userId) {
+        final String DELETE_BY_USER_ID_SQL =
+                "DELETE FROM BOOK " +
+                "WHERE PERSON_ID = :userId";
+        return databaseClient.sql(DELETE_BY_USER_ID_SQL)
+                .bind("userId", userId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(deletedBooks -> incrementVersion(userId, deletedBooks));
+    }
+
+    @Override
+    public Mono<Integer> deleteBooksByIds(Long userId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        final String DELETE_BY_IDS_SQL =
+                "DELETE FROM BOOK " +
+                "WHERE PERSON_ID = :userId AND ID IN (:ids)";
+        return databaseClient.sql(DELETE_BY_IDS_SQL)
+                .bind("userId", userId)
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(deletedBooks -> incrementVersion(userId, deletedBooks));
+    }
+
+    private Mono<Integer> incrementVersion(Long userId, int changedBooks) {
+        if (changedBooks == 0) {
+            return Mono.just(0);
+        }
+        return incrementVersions(INCREMENT_VERSIONS_SQL, List.of(userId))
+                .thenReturn(changedBooks);
+    }
+
+    private Mono<Integer> incrementVersions(String sql, Collection<Long> ids) {
+        return databaseClient.sql(sql)
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,116 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.service.ReactiveUserService;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<UserDto> createUser(UserDto userDto) {
+        final String INSERT_SQL =
+                "INSERT INTO PERSON(ID, FULL_NAME, TITLE, AGE) " +
+                "VALUES (nextval('ulab_edu.person_id_seq'), :fullName, :title, :age)";
+        return databaseClient.sql(INSERT_SQL)
+                .bind("fullName", userDto.getFullName())
+                .bind("title", userDto.getTitle())
+                .bind("age", userDto.getAge())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Number.class).longValue())
+                .one()
+                .map(id -> {
+                    userDto.setId(id);
+                    return userDto;
+                });
+    }
+
+    @Override
+    public Mono<UserDto> updateUser(UserDto userDto, long expectedVersion) {
+        final String UPDATE_SQL =
+                "UPDATE PERSON " +
+                "SET FULL_NAME = :fullName, TITLE = :title, AGE = :age, VERSION = VERSION + 1 " +
+                "WHERE ID = :id AND VERSION = :version";
+        Long id = userDto.getId();
+        return databaseClient.sql(UPDATE_SQL)
+                .bind("fullName", userDto.getFullName())
+                .bind("title", userDto.getTitle())
+                .bind("age", userDto.getAge())
+                .bind("id", id)
+                .bind("version", expectedVersion)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rowsAffected -> {
+                    if (rowsAffected != 1) {
+                        return getUserVersion(id).flatMap(actualVersion -> {
+                            log.debug("User with id {} has version {}, expected {}", id, actualVersion, expectedVersion);
+                            return Mono.error(new OptimisticLockingFailureException(
+                                    "User with id " + id + " has version " + actualVersion + ", expected " + expectedVersion));
+                        });
+                    }
+                    return Mono.just(userDto);
+                });
+    }
+
+    @Override
+    public Mono<UserDto> getUserById(Long id) {
+        final String SELECT_BY_ID_SQL =
+                "SELECT ID, FULL_NAME, TITLE, AGE FROM PERSON " +
+                "WHERE ID = :id";
+        return databaseClient.sql(SELECT_BY_ID_SQL)
+                .bind("id", id)
+                .map(this::mapRowToUserDto)
+                .one()
+                .switchIfEmpty(Mono.error(() -> {
+                    log.debug("User not found by id: {}", id);
+                    return new NotFoundException("User not found by id: " + id);
+                }));
+    }
+
+    @Override
+    public Mono<Long> getUserVersion(Long id) {
+        final String SELECT_VERSION_SQL =
+                "SELECT VERSION FROM PERSON " +
+                "WHERE ID = :id";
+        return databaseClient.sql(SELECT_VERSION_SQL)
+                .bind("id", id)
+                .map(row -> row.get("VERSION", Number.class).longValue())
+                .one()
+                .switchIfEmpty(Mono.error(() -> {
+                    log.debug("User not found by id: {}", id);
+                    return new NotFoundException("User not found by id: " + id);
+                }));
+    }
+
+    @Override
+    public Mono<Void> deleteUserById(Long id) {
+        final String DELETE_BY_ID_SQL =
+                "DELETE FROM PERSON " +
+                "WHERE ID = :id";
+        return databaseClient.sql(DELETE_BY_ID_SQL)
+                .bind("id", id)
+                .then();
+    }
+
+    private UserDto mapRowToUserDto(Row row) {
+        return UserDto.builder()
+                .id(row.get("ID", Number.class).longValue())
+                .fullName(row.get("FULL_NAME", String.class))
+                .title(row.get("TITLE", String.class))
+                .age(row.get("AGE", Integer.class))
+                .build();
+    }
+}
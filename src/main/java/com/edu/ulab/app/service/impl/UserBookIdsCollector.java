@@ -0,0 +1,42 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.UserBookIdsDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Собирает упорядоченные по userId пары юзер - книга в {@link UserBookIdsDto}
+ * и отдаёт каждого юзера, как только встречается следующий.
+ */
+class UserBookIdsCollector {
+    private final Consumer<UserBookIdsDto> consumer;
+    private Long currentUserId;
+    private long currentVersion;
+    private List<Long> currentBookIds;
+
+    UserBookIdsCollector(Consumer<UserBookIdsDto> consumer) {
+        this.consumer = consumer;
+    }
+
+    void accept(Long userId, long version, Long bookId) {
+        if (!userId.equals(currentUserId)) {
+            finish();
+            currentUserId = userId;
+            currentVersion = version;
+            currentBookIds = new ArrayList<>();
+        }
+        if (bookId != null) {
+            currentBookIds.add(bookId);
+        }
+    }
+
+    void finish() {
+        if (currentUserId != null) {
+            consumer.accept(new UserBookIdsDto(currentUserId, currentBookIds, currentVersion));
+            currentUserId = null;
+            currentBookIds = null;
+        }
+    }
+}
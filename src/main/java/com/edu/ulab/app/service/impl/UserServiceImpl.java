@@ -1,17 +1,30 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.BookEntity;
 import com.edu.ulab.app.entity.UserEntity;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.edu.ulab.app.repository.UserBookIdView;
 import com.edu.ulab.app.repository.UserRepository;
 
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "persistence.engine", havingValue = "jpa")
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
@@ -27,16 +40,33 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public UserDto updateUser(UserDto userDto) {
-        UserEntity foundUser = findUserById(userDto.getId());
-        UserEntity updatedUser;
-        if (userRepository.existsById(foundUser.getId())) {
-            updatedUser = userRepository.save(foundUser);
-        } else {
-            log.info("User not found by id: {}", userDto.getId());
-            throw new NotFoundException("User not found by id: " + userDto.getId());
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        List<UserEntity> userEntities = userDtos.stream()
+                .map(userMapper::userDtoToUserEntity)
+                .toList();
+        return userRepository.saveAll(userEntities)
+                .stream()
+                .map(userMapper::userEntityToUserDto)
+                .toList();
+    }
+
+    @Override
+    public UserDto updateUser(UserDto userDto, long expectedVersion) {
+        Long id = userDto.getId();
+        int rowsAffected = userRepository.updateUserByIdAndVersion(id,
+                expectedVersion,
+                userDto.getFullName(),
+                userDto.getTitle(),
+                userDto.getAge());
+        if (rowsAffected == 0) {
+            long actualVersion = userRepository.findVersionById(id).orElseThrow(() -> {
+                log.debug("User not found by id: {}", id);
+                return new NotFoundException("User not found by id: " + id);
+            });
+            log.debug("User with id {} has version {}, expected {}", id, actualVersion, expectedVersion);
+            throw new ObjectOptimisticLockingFailureException(UserEntity.class, id);
         }
-        return userMapper.userEntityToUserDto(updatedUser);
+        return userDto;
     }
 
     @Override
@@ -45,11 +75,61 @@ public class UserServiceImpl implements UserService {
         return userMapper.userEntityToUserDto(foundUser);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public UserBookIdsDto getUserWithBookIds(Long id) {
+        UserEntity foundUser = userRepository.findWithBookSetById(id).orElseThrow(
+                () -> new NotFoundException("User with id " + id + " not found")
+        );
+        Set<BookEntity> bookSet = foundUser.getBookSet();
+        return UserBookIdsDto.builder()
+                .userId(foundUser.getId())
+                .bookIds(bookSet == null ? List.of() : bookSet.stream()
+                        .map(BookEntity::getId)
+                        .sorted()
+                        .toList())
+                .version(foundUser.getVersion())
+                .build();
+    }
+
+    @Override
+    public long getUserVersion(Long id) {
+        return userRepository.findVersionById(id).orElseThrow(
+                () -> new NotFoundException("User with id " + id + " not found")
+        );
+    }
+
+    @Override
+    public long lockUserVersion(Long id) {
+        return userRepository.findForUpdateById(id).orElseThrow(
+                () -> new NotFoundException("User with id " + id + " not found")
+        ).getVersion();
+    }
+
+    @Override
+    public List<UserDto> getUsers(Long afterId, int limit) {
+        return userRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit))
+                .stream()
+                .map(userMapper::userEntityToUserDto)
+                .toList();
+    }
+
     @Override
     public void deleteUserById(Long id) {
-        if (userRepository.existsById(id)) {
-            userRepository.deleteById(id);
+        if (userRepository.deleteUserById(id) == 0) {
+            log.debug("User not found by id: {}", id);
+            throw new NotFoundException("User not found by id: " + id);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUserWithBookIds(Consumer<UserBookIdsDto> consumer) {
+        UserBookIdsCollector collector = new UserBookIdsCollector(consumer);
+        try (Stream<UserBookIdView> rows = userRepository.streamAllUserBookIds()) {
+            rows.forEach(row -> collector.accept(row.getUserId(), row.getVersion(), row.getBookId()));
         }
+        collector.finish();
     }
 
     private UserEntity findUserById(Long id) {
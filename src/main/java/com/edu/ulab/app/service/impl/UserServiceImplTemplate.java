@@ -1,99 +1,238 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Array;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "persistence.engine", havingValue = "jdbc", matchIfMissing = true)
 @RequiredArgsConstructor
 public class UserServiceImplTemplate implements UserService {
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO ulab_edu.person(ID, FULL_NAME, TITLE, AGE) " +
+            "VALUES (nextval('ulab_edu.person_id_seq'),?,?,?)";
+    private static final String UPDATE_SQL =
+            "UPDATE ulab_edu.person " +
+            "SET FULL_NAME = ?, TITLE = ?, AGE = ?, VERSION = VERSION + 1 " +
+            "WHERE ID = ? AND VERSION = ?";
+    private static final String SELECT_BY_ID_SQL =
+            "SELECT ID, FULL_NAME, TITLE, AGE FROM ulab_edu.person " +
+            "WHERE ID = ?";
+    private static final String SELECT_VERSION_SQL =
+            "SELECT VERSION FROM ulab_edu.person " +
+            "WHERE ID = ?";
+    private static final String SELECT_VERSION_FOR_UPDATE_SQL =
+            "SELECT VERSION FROM ulab_edu.person " +
+            "WHERE ID = ? " +
+            "FOR UPDATE";
+    private static final String SELECT_WITH_BOOK_IDS_SQL =
+            "SELECT P.ID, array_agg(B.ID ORDER BY B.ID) FILTER (WHERE B.ID IS NOT NULL) AS BOOK_IDS, P.VERSION " +
+            "FROM ulab_edu.person P " +
+            "LEFT JOIN ulab_edu.book B ON B.PERSON_ID = P.ID " +
+            "WHERE P.ID = ? " +
+            "GROUP BY P.ID, P.VERSION";
+    private static final String SELECT_PAGE_SQL =
+            "SELECT ID, FULL_NAME, TITLE, AGE FROM ulab_edu.person " +
+            "WHERE ID > ? " +
+            "ORDER BY ID " +
+            "LIMIT ?";
+    private static final String DELETE_BY_ID_SQL =
+            "DELETE FROM ulab_edu.person " +
+            "WHERE ID = ?";
+    private static final String SELECT_USER_BOOK_IDS_SQL =
+            "SELECT P.ID, P.VERSION, B.ID FROM ulab_edu.person P " +
+            "LEFT JOIN ulab_edu.book B ON B.PERSON_ID = P.ID " +
+            "ORDER BY P.ID, B.ID";
+
+    private static final PreparedStatementCreatorFactory INSERT_STATEMENT = insertStatement();
 
     private final JdbcTemplate jdbcTemplate;
 
     @Override
     public UserDto createUser(UserDto userDto) {
-        final String INSERT_SQL = "INSERT INTO PERSON(FULL_NAME, TITLE, AGE) VALUES (?,?,?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                    ps.setString(1, userDto.getFullName());
-                    ps.setString(2, userDto.getTitle());
-                    ps.setLong(3, userDto.getAge());
-                    return ps;
-                }, keyHolder);
+        jdbcTemplate.update(INSERT_STATEMENT.newPreparedStatementCreator(new Object[]{
+                userDto.getFullName(),
+                userDto.getTitle(),
+                userDto.getAge()}), keyHolder);
 
         userDto.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
         return userDto;
     }
 
     @Override
-    public UserDto updateUser(UserDto userDto) {
-        String UPDATE_SQL =
-                "UPDATE PERSON " +
-                "SET FULL_NAME = ?, TITLE = ?, AGE = ? " +
-                 "WHERE ID = ?";
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        if (userDtos.isEmpty()) {
+            return userDtos;
+        }
+        return jdbcTemplate.execute(
+                (Connection connection) -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                (PreparedStatement ps) -> {
+                    for (UserDto userDto : userDtos) {
+                        ps.setString(1, userDto.getFullName());
+                        ps.setString(2, userDto.getTitle());
+                        ps.setInt(3, userDto.getAge());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (UserDto userDto : userDtos) {
+                            if (!keys.next()) {
+                                throw new IllegalStateException("Generated user id was not returned");
+                            }
+                            userDto.setId(keys.getLong(1));
+                        }
+                    }
+                    return userDtos;
+                });
+    }
+
+    @Override
+    public UserDto updateUser(UserDto userDto, long expectedVersion) {
         Long id = userDto.getId();
         int rowsAffected = jdbcTemplate.update(UPDATE_SQL,
                 userDto.getFullName(),
                 userDto.getTitle(),
                 userDto.getAge(),
-                userDto.getId());
+                userDto.getId(),
+                expectedVersion);
         if (rowsAffected != 1) {
-            log.info("User does not exist by id: {}", id);
-            throw new NotFoundException("User does not exist by id: " + id);
+            long actualVersion = getUserVersion(id);
+            log.debug("User with id {} has version {}, expected {}", id, actualVersion, expectedVersion);
+            throw new OptimisticLockingFailureException(
+                    "User with id " + id + " has version " + actualVersion + ", expected " + expectedVersion);
         }
         return userDto;
     }
 
     @Override
     public UserDto getUserById(Long id) {
-        final String SELECT_BY_ID_SQL =
-                "SELECT ID, FULL_NAME, TITLE, AGE FROM PERSON " +
-                "WHERE ID = ?";
         UserDto userFound;
         try {
             userFound = jdbcTemplate.queryForObject(SELECT_BY_ID_SQL, this::mapRowToUserDto, id);
         } catch (EmptyResultDataAccessException e) {
-            log.info("User not found by id: {}", id);
+            log.debug("User not found by id: {}", id);
             throw new NotFoundException("User not found by id: " + id);
         }
         return userFound;
     }
 
     @Override
-    public void deleteUserById(Long id) {
-        String DELETE_BY_ID_SQL =
-                "DELETE FROM PERSON " +
-                "WHERE ID = ?";
+    @Transactional(readOnly = true)
+    public UserBookIdsDto getUserWithBookIds(Long id) {
+        UserBookIdsDto userFound;
+        try {
+            userFound = jdbcTemplate.queryForObject(SELECT_WITH_BOOK_IDS_SQL, this::mapRowToUserBookIdsDto, id);
+        } catch (EmptyResultDataAccessException e) {
+            log.debug("User not found by id: {}", id);
+            throw new NotFoundException("User not found by id: " + id);
+        }
+        return userFound;
+    }
+
+    @Override
+    public long getUserVersion(Long id) {
+        try {
+            return jdbcTemplate.queryForObject(SELECT_VERSION_SQL, Long.class, id);
+        } catch (EmptyResultDataAccessException e) {
+            log.debug("User not found by id: {}", id);
+            throw new NotFoundException("User not found by id: " + id);
+        }
+    }
+
+    @Override
+    public long lockUserVersion(Long id) {
         try {
-            jdbcTemplate.update(DELETE_BY_ID_SQL, id);
+            return jdbcTemplate.queryForObject(SELECT_VERSION_FOR_UPDATE_SQL, Long.class, id);
         } catch (EmptyResultDataAccessException e) {
-            log.info("User does not exist by id: {}", id);
+            log.debug("User not found by id: {}", id);
+            throw new NotFoundException("User not found by id: " + id);
+        }
+    }
+
+    @Override
+    public List<UserDto> getUsers(Long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_PAGE_SQL, this::mapRowToUserDto, afterId, limit);
+    }
+
+    @Override
+    public void deleteUserById(Long id) {
+        if (jdbcTemplate.update(DELETE_BY_ID_SQL, id) == 0) {
+            log.debug("User does not exist by id: {}", id);
             throw new NotFoundException("User does not exist by id: " + id);
         }
     }
 
+    @Override
+    public void forEachUserWithBookIds(Consumer<UserBookIdsDto> consumer) {
+        UserBookIdsCollector collector = new UserBookIdsCollector(consumer);
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_USER_BOOK_IDS_SQL,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(EXPORT_FETCH_SIZE);
+                    return ps;
+                },
+                (ResultSet resultSet) -> {
+                    long userId = resultSet.getLong(1);
+                    long version = resultSet.getLong(2);
+                    long bookId = resultSet.getLong(3);
+                    collector.accept(userId, version, resultSet.wasNull() ? null : bookId);
+                });
+        collector.finish();
+    }
+
+    private static PreparedStatementCreatorFactory insertStatement() {
+        PreparedStatementCreatorFactory statement = new PreparedStatementCreatorFactory(INSERT_SQL,
+                Types.VARCHAR, Types.VARCHAR, Types.INTEGER);
+        statement.setGeneratedKeysColumnNames("id");
+        return statement;
+    }
+
+    private UserBookIdsDto mapRowToUserBookIdsDto(ResultSet resultSet, int rowNum) throws SQLException {
+        Array bookIds = resultSet.getArray(2);
+        return UserBookIdsDto.builder()
+                .userId(resultSet.getLong(1))
+                .bookIds(bookIds == null ? List.of() : Stream.of((Object[]) bookIds.getArray())
+                        .map(bookId -> ((Number) bookId).longValue())
+                        .toList())
+                .version(resultSet.getLong(3))
+                .build();
+    }
+
     private UserDto mapRowToUserDto(ResultSet resultSet, int rowNum) throws SQLException {
         return UserDto.builder()
-                .id(resultSet.getLong("ID"))
-                .fullName(resultSet.getString("FULL_NAME"))
-                .title(resultSet.getString("TITLE"))
-                .age(resultSet.getInt("AGE"))
+                .id(resultSet.getLong(1))
+                .fullName(resultSet.getString(2))
+                .title(resultSet.getString(3))
+                .age(resultSet.getInt(4))
                 .build();
     }
 }
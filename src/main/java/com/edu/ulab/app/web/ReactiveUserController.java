@@ -0,0 +1,67 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.facade.ReactiveUserDataFacade;
+import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.Pattern;
+
+import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+
+/**
+ * Те же create/update/get/delete, что у {@link UserController}, на WebFlux и R2DBC.
+ * Активен в профиле {@code reactive} вместо блокирующего контроллера.
+ * Update так же принимает If-Match и отдаёт ETag новой версии.
+ */
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequestMapping(value = WebConstant.VERSION_URL + "/user",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReactiveUserController {
+    private final ReactiveUserDataFacade userDataFacade;
+
+    public ReactiveUserController(ReactiveUserDataFacade userDataFacade) {
+        this.userDataFacade = userDataFacade;
+    }
+
+    @PostMapping(value = "/create")
+    public Mono<UserBookResponse> createUserWithBooks(@RequestBody UserBookRequest request,
+                                                      @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
+        return userDataFacade.createUserWithBooks(request)
+                .doOnNext(response -> log.debug("Response with created user and his books: {}", response));
+    }
+
+    @PutMapping(value = "/update")
+    public Mono<ResponseEntity<UserBookResponse>> updateUserWithBooks(@RequestBody UserBookUpdateRequest request,
+                                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                                      final String ifMatch) {
+        return userDataFacade.updateUserWithBooks(request, UserBookETag.parseIfMatch(ifMatch))
+                .doOnNext(response -> log.debug("Response with updated user and his books: {}", response))
+                .map(response -> ResponseEntity.ok()
+                        .eTag(UserBookETag.of(response.getVersion(), MediaType.APPLICATION_JSON_VALUE))
+                        .body(response));
+    }
+
+    @GetMapping(value = "/get/{userId}")
+    public Mono<UserBookResponse> getUserWithBooks(@PathVariable Long userId) {
+        return userDataFacade.getUserWithBooks(userId)
+                .doOnNext(response -> log.debug("Response with user and his books: {}", response));
+    }
+
+    @DeleteMapping(value = "/delete/{userId}")
+    public Mono<Void> deleteUserWithBooks(@PathVariable Long userId) {
+        log.debug("Delete user and his books: userId {}", userId);
+        return userDataFacade.deleteUserWithBooks(userId);
+    }
+}
@@ -0,0 +1,99 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+import static com.edu.ulab.app.web.constant.WebConstant.APPLICATION_PROTOBUF_VALUE;
+import static com.edu.ulab.app.web.constant.WebConstant.APPLICATION_SMILE_VALUE;
+
+/**
+ * ETag юзера с книгами вида {@code "<версия>-<формат>"}.
+ * Сильный ETag обещает побайтно одинаковый ответ, поэтому JSON, Smile, CBOR и Protobuf одной версии
+ * получают разные теги, а в If-Match значима только версия.
+ */
+@Slf4j
+final class UserBookETag {
+    /**
+     * Форматы ответа в порядке {@code produces} контроллера: первый совместимый с Accept и выбирает Spring.
+     */
+    private static final List<MediaType> REPRESENTATIONS = List.of(MediaType.APPLICATION_JSON,
+            MediaType.parseMediaType(APPLICATION_SMILE_VALUE), MediaType.APPLICATION_CBOR,
+            MediaType.parseMediaType(APPLICATION_PROTOBUF_VALUE));
+
+    private UserBookETag() {
+    }
+
+    /**
+     * @param accept заголовок Accept запроса, {@code null} равен {@code *}{@code /*}
+     */
+    static String of(long version, String accept) {
+        return "\"" + version + "-" + representation(accept).getSubtype() + "\"";
+    }
+
+    /**
+     * Слабое сравнение с If-None-Match, как у {@code WebRequest#checkNotModified}, но без записи заголовков
+     * в ответ: тег тела берётся из другого чтения и может оказаться новее.
+     */
+    static boolean matchesNoneMatch(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-Match с одним сильным ETag из {@code get/{userId}}; {@code *} и отсутствие заголовка проверку не включают.
+     * Версия читается до {@code -}, тег без формата тоже принимается.
+     * Слабый или нечисловой ETag не совпадает ни с одной версией.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            String value = eTag.substring(1, eTag.length() - 1);
+            int dash = value.indexOf('-');
+            try {
+                return Long.parseLong(dash < 0 ? value : value.substring(0, dash));
+            } catch (NumberFormatException e) {
+                log.debug("Not a version ETag in If-Match: {}", ifMatch);
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match any user version");
+    }
+
+    private static MediaType representation(String accept) {
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = accept == null || accept.isBlank()
+                    ? List.of(MediaType.ALL)
+                    : MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return REPRESENTATIONS.get(0);
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            for (MediaType representation : REPRESENTATIONS) {
+                if (acceptedType.isCompatibleWith(representation)) {
+                    return representation;
+                }
+            }
+        }
+        return REPRESENTATIONS.get(0);
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
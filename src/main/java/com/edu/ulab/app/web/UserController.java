@@ -1,35 +1,58 @@
 package com.edu.ulab.app.web;
 
+import com.edu.ulab.app.facade.UserBulkFacade;
 import com.edu.ulab.app.facade.UserDataFacade;
 import com.edu.ulab.app.web.constant.WebConstant;
 import com.edu.ulab.app.web.request.UserBookRequest;
 import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.response.UserBookImportResponse;
+import com.edu.ulab.app.web.response.UserBookPageResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBookStatsPageResponse;
+import com.edu.ulab.app.web.response.UserBookStatsResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Pattern;
+import java.io.IOException;
 
+import static com.edu.ulab.app.web.constant.WebConstant.APPLICATION_PROTOBUF_VALUE;
+import static com.edu.ulab.app.web.constant.WebConstant.APPLICATION_SMILE_VALUE;
+import static com.edu.ulab.app.web.constant.WebConstant.MDC_BOOK_COUNT;
+import static com.edu.ulab.app.web.constant.WebConstant.MDC_USER_ID;
 import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
 import static com.edu.ulab.app.web.constant.WebConstant.RQID;
 
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequestMapping(value = WebConstant.VERSION_URL + "/user",
-        produces = MediaType.APPLICATION_JSON_VALUE)
+        produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                APPLICATION_PROTOBUF_VALUE})
 public class UserController {
     private final UserDataFacade userDataFacade;
+    private final UserBulkFacade userBulkFacade;
 
-    public UserController(UserDataFacade userDataFacade) {
+    public UserController(UserDataFacade userDataFacade, UserBulkFacade userBulkFacade) {
         this.userDataFacade = userDataFacade;
+        this.userBulkFacade = userBulkFacade;
     }
 
-    @PostMapping(value = "/create")
+    @PostMapping(value = "/create",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                    APPLICATION_PROTOBUF_VALUE})
     @Operation(summary = "Create user book row.",
             responses = {
                     @ApiResponse(description = "User book",
@@ -38,20 +61,55 @@ public class UserController {
     public UserBookResponse createUserWithBooks(@RequestBody UserBookRequest request,
                                                 @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
         UserBookResponse response = userDataFacade.createUserWithBooks(request);
-        log.info("Response with created user and his books: {}", response);
+        log.debug("Response with created user and his books: {}", response);
+        putSummary(response);
         return response;
     }
 
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Create users with their books from a JSON array or NDJSON stream.",
+            responses = {
+                    @ApiResponse(description = "One result line per imported item",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = UserBookImportResponse.class)))})
+    public void importUsersWithBooks(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userBulkFacade.importUsersWithBooks(request.getInputStream(), response.getOutputStream());
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all users with their book ids as NDJSON.",
+            responses = {
+                    @ApiResponse(description = "One line per user",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = UserBookResponse.class)))})
+    public void exportUsersWithBooks(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userBulkFacade.exportUsersWithBooks(response.getOutputStream());
+    }
+
     @Operation(summary = "Update user and his books.",
             responses = {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
-    @PutMapping(value = "/update")
-    public UserBookResponse updateUserWithBooks(@RequestBody UserBookUpdateRequest request) {
-        UserBookResponse response = userDataFacade.updateUserWithBooks(request);
-        log.info("Response with updated user and his books: {}", response);
-        return response;
+    @PutMapping(value = "/update",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                    APPLICATION_PROTOBUF_VALUE})
+    public ResponseEntity<UserBookResponse> updateUserWithBooks(@RequestBody UserBookUpdateRequest request,
+                                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                                final String ifMatch,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                                final String accept) {
+        UserBookResponse response = userDataFacade.updateUserWithBooks(request, UserBookETag.parseIfMatch(ifMatch));
+        log.debug("Response with updated user and his books: {}", response);
+        putSummary(response);
+        return ResponseEntity.ok()
+                .eTag(UserBookETag.of(response.getVersion(), accept))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(response);
     }
 
     @Operation(summary = "Get user and his books.",
@@ -60,16 +118,84 @@ public class UserController {
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
     @GetMapping(value = "/get/{userId}")
-    public UserBookResponse getUserWithBooks(@PathVariable Long userId) {
+    public ResponseEntity<UserBookResponse> getUserWithBooks(@PathVariable Long userId,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                             final String ifNoneMatch,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                             final String accept) {
+        String currentETag = UserBookETag.of(userDataFacade.getUserVersion(userId), accept);
+        if (UserBookETag.matchesNoneMatch(ifNoneMatch, currentETag)) {
+            log.debug("User {} not modified since {}", userId, currentETag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(currentETag)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
         UserBookResponse response = userDataFacade.getUserWithBooks(userId);
-        log.info("Response with user and his books: {}", response);
+        log.debug("Response with user and his books: {}", response);
+        putSummary(response);
+        return ResponseEntity.ok()
+                .eTag(UserBookETag.of(response.getVersion(), accept))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(response);
+    }
+
+    @Operation(summary = "List users with their book ids, ordered by user id.",
+            responses = {
+                    @ApiResponse(description = "Page of users with books",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBookPageResponse.class)))})
+    @GetMapping(value = "/list")
+    public UserBookPageResponse getUsersWithBooks(@RequestParam(defaultValue = "0") Long after,
+                                                  @RequestParam(defaultValue = "20") int limit) {
+        UserBookPageResponse response = userDataFacade.getUsersWithBooks(after, limit);
+        log.debug("Response with {} users after id {}", response.getUsers().size(), after);
+        MDC.put(MDC_BOOK_COUNT, String.valueOf(response.getUsers().stream()
+                .mapToInt(user -> user.getBooksIdList().size())
+                .sum()));
+        return response;
+    }
+
+    @Operation(summary = "Get book count, page sum and top authors of the user.",
+            responses = {
+                    @ApiResponse(description = "User book stats",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBookStatsResponse.class)))})
+    @GetMapping(value = "/stats/{userId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public UserBookStatsResponse getUserBookStats(@PathVariable Long userId) {
+        UserBookStatsResponse response = userDataFacade.getUserBookStats(userId);
+        log.debug("Response with user book stats: {}", response);
+        MDC.put(MDC_USER_ID, String.valueOf(response.getUserId()));
+        return response;
+    }
+
+    @Operation(summary = "List book stats of users, ordered by user id.",
+            responses = {
+                    @ApiResponse(description = "Page of user book stats",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBookStatsPageResponse.class)))})
+    @GetMapping(value = "/stats",
+            produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public UserBookStatsPageResponse getUsersBookStats(@RequestParam(defaultValue = "0") Long after,
+                                                       @RequestParam(defaultValue = "20") int limit) {
+        UserBookStatsPageResponse response = userDataFacade.getUsersBookStats(after, limit);
+        log.debug("Response with book stats of {} users after id {}", response.getUsers().size(), after);
         return response;
     }
 
     @Operation(summary = "Delete user and his books.")
     @DeleteMapping(value = "/delete/{userId}")
-    public void deleteUserWithBooks(@PathVariable Long userId) {
-        log.info("Delete user and his books: userId {}", userId);
-        userDataFacade.deleteUserWithBooks(userId);
+    public void deleteUserWithBooks(@PathVariable Long userId,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                    final String ifMatch) {
+        log.debug("Delete user and his books: userId {}", userId);
+        MDC.put(MDC_USER_ID, String.valueOf(userId));
+        userDataFacade.deleteUserWithBooks(userId, UserBookETag.parseIfMatch(ifMatch));
+    }
+
+    private static void putSummary(UserBookResponse response) {
+        MDC.put(MDC_USER_ID, String.valueOf(response.getUserId()));
+        MDC.put(MDC_BOOK_COUNT, String.valueOf(response.getBooksIdList().size()));
     }
 }
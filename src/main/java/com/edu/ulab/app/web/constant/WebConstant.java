@@ -7,4 +7,9 @@ public class WebConstant {
     public static final String VERSION_URL = "/api/v1";
     public static final String RQID = "rqid";
     public static final String REQUEST_ID_PATTERN = "^[A-Za-z0-9_-]*$";
+    public static final String MDC_REQUEST_ID = "requestId";
+    public static final String MDC_USER_ID = "userId";
+    public static final String MDC_BOOK_COUNT = "bookCount";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
 }
@@ -0,0 +1,134 @@
+package com.edu.ulab.app.web.converter;
+
+import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.protobuf.UserBookProto;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.request.UserUpdateRequest;
+import com.edu.ulab.app.web.response.BaseWebResponse;
+import com.edu.ulab.app.web.response.UserBookPageResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@code application/x-protobuf} для моделей {@code UserController} по схеме {@code user_book.proto}.
+ * Контроллер работает с теми же классами, что и для JSON, перекладка в сообщения protobuf происходит здесь.
+ */
+public class UserBookProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    private static final Set<Class<?>> SUPPORTED_CLASSES = Set.of(
+            UserBookRequest.class,
+            UserBookUpdateRequest.class,
+            UserBookResponse.class,
+            UserBookPageResponse.class,
+            BaseWebResponse.class);
+
+    public UserBookProtobufHttpMessageConverter() {
+        super(MediaType.valueOf(WebConstant.APPLICATION_PROTOBUF_VALUE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SUPPORTED_CLASSES.contains(clazz);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            if (clazz == UserBookRequest.class) {
+                return toUserBookRequest(UserBookProto.UserBookRequest.parseFrom(inputMessage.getBody()));
+            }
+            if (clazz == UserBookUpdateRequest.class) {
+                return toUserBookUpdateRequest(UserBookProto.UserBookRequest.parseFrom(inputMessage.getBody()));
+            }
+        } catch (InvalidProtocolBufferException e) {
+            throw new HttpMessageNotReadableException("Invalid protobuf message: " + e.getMessage(), e, inputMessage);
+        }
+        throw new HttpMessageNotReadableException("Protobuf reading is not supported for " + clazz.getName(),
+                inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        toMessage(value).writeTo(outputMessage.getBody());
+    }
+
+    static Message toMessage(Object value) {
+        if (value instanceof UserBookResponse response) {
+            return toProto(response);
+        }
+        if (value instanceof UserBookPageResponse page) {
+            UserBookProto.UserBookPageResponse.Builder builder = UserBookProto.UserBookPageResponse.newBuilder();
+            page.getUsers().forEach(user -> builder.addUsers(toProto(user)));
+            if (page.getNextAfter() != null) {
+                builder.setNextAfter(page.getNextAfter());
+            }
+            return builder.build();
+        }
+        if (value instanceof BaseWebResponse error) {
+            return UserBookProto.ErrorResponse.newBuilder()
+                    .setErrorMessage(Objects.toString(error.getErrorMessage(), ""))
+                    .build();
+        }
+        throw new HttpMessageNotWritableException("Protobuf writing is not supported for " + value.getClass().getName());
+    }
+
+    private static UserBookProto.UserBookResponse toProto(UserBookResponse response) {
+        return UserBookProto.UserBookResponse.newBuilder()
+                .setUserId(response.getUserId())
+                .addAllBooksIdList(response.getBooksIdList())
+                .build();
+    }
+
+    private static UserBookRequest toUserBookRequest(UserBookProto.UserBookRequest message) {
+        UserBookProto.UserRequest userMessage = message.getUserRequest();
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName(userMessage.getFullName());
+        userRequest.setTitle(userMessage.getTitle());
+        userRequest.setAge(userMessage.getAge());
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(toBookRequests(message.getBookRequestsList()));
+        return request;
+    }
+
+    private static UserBookUpdateRequest toUserBookUpdateRequest(UserBookProto.UserBookRequest message) {
+        UserBookProto.UserRequest userMessage = message.getUserRequest();
+        UserUpdateRequest userRequest = new UserUpdateRequest();
+        userRequest.setId(userMessage.hasId() ? userMessage.getId() : null);
+        userRequest.setFullName(userMessage.getFullName());
+        userRequest.setTitle(userMessage.getTitle());
+        userRequest.setAge(userMessage.getAge());
+
+        UserBookUpdateRequest request = new UserBookUpdateRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(toBookRequests(message.getBookRequestsList()));
+        return request;
+    }
+
+    private static List<BookRequest> toBookRequests(List<UserBookProto.BookRequest> messages) {
+        return messages.stream()
+                .map(message -> {
+                    BookRequest bookRequest = new BookRequest();
+                    bookRequest.setTitle(message.getTitle());
+                    bookRequest.setAuthor(message.getAuthor());
+                    bookRequest.setPageCount(message.getPageCount());
+                    return bookRequest;
+                })
+                .toList();
+    }
+}
@@ -1,30 +1,98 @@
 package com.edu.ulab.app.web.filter;
 
+import com.edu.ulab.app.config.MetricsConfig;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.QueryCountHolder;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import static com.edu.ulab.app.web.constant.WebConstant.MDC_BOOK_COUNT;
+import static com.edu.ulab.app.web.constant.WebConstant.MDC_REQUEST_ID;
+import static com.edu.ulab.app.web.constant.WebConstant.MDC_USER_ID;
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+
+/**
+ * Пишет одну итоговую строку на запрос и число SQL-запросов за него в метрику.
+ * SQL считаются, только если включён прокси DataSource ({@code metrics.sql-statements.enabled}),
+ * иначе метрика не пишется, а в строке лога стоит {@code sql=-}.
+ * userId и число книг кладёт в MDC контроллер,
+ * подробные логи запросов и ответов включаются уровнем DEBUG через actuator/loggers.
+ */
 @Slf4j
 @Component
 public class HttpRequestFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+    private final boolean sqlStatementsEnabled;
+    private final Map<RequestTags, DistributionSummary> sqlStatementSummaries = new ConcurrentHashMap<>();
+
+    public HttpRequestFilter(MeterRegistry meterRegistry,
+                             @Value("${" + MetricsConfig.SQL_STATEMENTS_ENABLED + ":false}") boolean sqlStatementsEnabled) {
+        this.meterRegistry = meterRegistry;
+        this.sqlStatementsEnabled = sqlStatementsEnabled;
+    }
+
     @Override
     protected void doFilterInternal(final HttpServletRequest request,
                                     final HttpServletResponse response,
                                     final FilterChain filterChain) throws ServletException, IOException {
-        String requestId = request.getHeader("rqid");
-        MDC.put("requestId", requestId);
-        log.info("RequestId : {}", requestId);
+        long start = System.nanoTime();
+        if (sqlStatementsEnabled) {
+            QueryCountHolder.clear();
+        }
+        MDC.put(MDC_REQUEST_ID, request.getHeader(RQID));
         try {
             filterChain.doFilter(request, response);
         } finally {
-            MDC.remove("requestId");
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Object statements = "-";
+            if (sqlStatementsEnabled) {
+                long count = QueryCountHolder.getGrandTotal().getTotal();
+                QueryCountHolder.clear();
+                sqlStatementSummaries.computeIfAbsent(
+                                new RequestTags(request.getMethod(), pattern != null ? pattern.toString() : "UNKNOWN"),
+                                this::registerSqlStatementSummary)
+                        .record(count);
+                statements = count;
+            }
+            if (log.isInfoEnabled()) {
+                log.info("requestId={} operation={} {} status={} userId={} books={} sql={} durationMs={}",
+                        MDC.get(MDC_REQUEST_ID),
+                        request.getMethod(),
+                        pattern != null ? pattern : request.getRequestURI(),
+                        response.getStatus(),
+                        MDC.get(MDC_USER_ID),
+                        MDC.get(MDC_BOOK_COUNT),
+                        statements,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            MDC.remove(MDC_REQUEST_ID);
+            MDC.remove(MDC_USER_ID);
+            MDC.remove(MDC_BOOK_COUNT);
         }
     }
+
+    private DistributionSummary registerSqlStatementSummary(RequestTags tags) {
+        return DistributionSummary.builder(MetricsConfig.REQUEST_SQL_STATEMENTS)
+                .tag("method", tags.method())
+                .tag("uri", tags.uri())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private record RequestTags(String method, String uri) {
+    }
 }
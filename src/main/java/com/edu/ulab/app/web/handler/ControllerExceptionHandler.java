@@ -1,9 +1,11 @@
 package com.edu.ulab.app.web.handler;
 
 import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
 import com.edu.ulab.app.web.response.BaseWebResponse;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -21,6 +23,21 @@ public class ControllerExceptionHandler {
                 .body(new BaseWebResponse(createErrorMessage(exc)));
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<BaseWebResponse> handlePreconditionFailedException(@NonNull final PreconditionFailedException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<BaseWebResponse> handleOptimisticLockingFailureException(
+            @NonNull final OptimisticLockingFailureException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
     private String createErrorMessage(Exception exception) {
         final String message = exception.getMessage();
         log.error(ExceptionHandlerUtils.buildErrorMessage(exception));
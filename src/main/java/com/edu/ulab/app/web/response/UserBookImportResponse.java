@@ -0,0 +1,21 @@
+package com.edu.ulab.app.web.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserBookImportResponse {
+    private long index;
+    private Long userId;
+    private List<Long> booksIdList;
+    private String errorMessage;
+}
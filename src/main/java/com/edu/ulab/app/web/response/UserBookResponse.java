@@ -1,5 +1,6 @@
 package com.edu.ulab.app.web.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 import lombok.Data;
 
@@ -10,4 +11,10 @@ import java.util.List;
 public class UserBookResponse {
     private Long userId;
     private List<Long> booksIdList;
+
+    /**
+     * Версия юзера, из которой собран ответ, уходит в ETag, а не в тело.
+     */
+    @JsonIgnore
+    private Long version;
 }
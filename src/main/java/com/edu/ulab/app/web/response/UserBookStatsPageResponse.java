@@ -0,0 +1,16 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserBookStatsPageResponse {
+    private List<UserBookStatsResponse> users;
+    /**
+     * Значение after для следующей страницы, null на последней странице.
+     */
+    private Long nextAfter;
+}
@@ -0,0 +1,15 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserBookStatsResponse {
+    private Long userId;
+    private long bookCount;
+    private long pageSum;
+    private List<String> topAuthors;
+}
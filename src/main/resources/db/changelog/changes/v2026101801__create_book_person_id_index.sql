@@ -0,0 +1 @@
+CREATE INDEX idx_ulab_edu_book_person_id on ulab_edu.book (person_id);
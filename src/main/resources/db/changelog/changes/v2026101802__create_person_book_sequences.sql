@@ -0,0 +1,5 @@
+CREATE SEQUENCE ulab_edu.person_id_seq INCREMENT BY 50;
+CREATE SEQUENCE ulab_edu.book_id_seq INCREMENT BY 50;
+
+SELECT setval('ulab_edu.person_id_seq', coalesce((SELECT max(id) FROM ulab_edu.person), 0) + 50, false);
+SELECT setval('ulab_edu.book_id_seq', coalesce((SELECT max(id) FROM ulab_edu.book), 0) + 50, false);
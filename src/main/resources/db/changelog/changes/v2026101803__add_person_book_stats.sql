@@ -0,0 +1,13 @@
+ALTER TABLE ulab_edu.person ADD COLUMN book_count bigint NOT NULL DEFAULT 0;
+ALTER TABLE ulab_edu.person ADD COLUMN page_sum bigint NOT NULL DEFAULT 0;
+
+UPDATE ulab_edu.person p
+SET book_count = s.book_count,
+    page_sum   = s.page_sum
+FROM (SELECT person_id, count(*) AS book_count, sum(page_count) AS page_sum
+      FROM ulab_edu.book
+      GROUP BY person_id) s
+WHERE s.person_id = p.id;
+
+comment on column ulab_edu.person.book_count is 'Количество книг, ведётся при book-stats.summary-enabled';
+comment on column ulab_edu.person.page_sum is 'Сумма страниц книг, ведётся при book-stats.summary-enabled';
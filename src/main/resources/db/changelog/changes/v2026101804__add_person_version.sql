@@ -0,0 +1,3 @@
+ALTER TABLE ulab_edu.person ADD COLUMN version bigint NOT NULL DEFAULT 0;
+
+comment on column ulab_edu.person.version is 'Версия юзера с книгами, растёт при каждом изменении юзера или его книг';
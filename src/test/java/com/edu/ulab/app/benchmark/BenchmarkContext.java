@@ -0,0 +1,38 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.AppApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Контекст приложения для бенчмарков на встроенной H2 из профиля benchmark, по умолчанию без веб-сервера.
+ * Тестовые конфигурации с Testcontainers из сканирования исключены.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = AppApplication.class)
+@EnableJpaRepositories(basePackageClasses = AppApplication.class)
+@ComponentScan(basePackageClasses = AppApplication.class, excludeFilters = {
+        @ComponentScan.Filter(TestConfiguration.class),
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = AppApplication.class)})
+class BenchmarkContext {
+
+    static ConfigurableApplicationContext start(String... args) {
+        return start(WebApplicationType.NONE, args);
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... args) {
+        return new SpringApplicationBuilder(BenchmarkContext.class)
+                .web(webApplicationType)
+                .profiles("benchmark")
+                .run(args);
+    }
+}
@@ -0,0 +1,74 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг строк в {@link BookServiceImplTemplate#getAllBooks()} на ResultSet в памяти, без обращения к БД:
+ * JdbcTemplate отдаёт RowMapper сервиса готовому ResultSet вместо выполнения запроса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookRowMapperBenchmark {
+
+    @Param({"1000"})
+    private int rows;
+
+    private SimpleResultSet resultSet;
+    private BookService bookService;
+
+    @Setup
+    public void setUp() {
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("ID", Types.BIGINT, 19, 0);
+        resultSet.addColumn("PERSON_ID", Types.BIGINT, 19, 0);
+        resultSet.addColumn("TITLE", Types.VARCHAR, 50, 0);
+        resultSet.addColumn("AUTHOR", Types.VARCHAR, 50, 0);
+        resultSet.addColumn("PAGE_COUNT", Types.BIGINT, 19, 0);
+        for (long i = 0; i < rows; i++) {
+            resultSet.addRow(i, i / 10, "title " + i, "author " + i, 100 + i);
+        }
+        bookService = new BookServiceImplTemplate(new JdbcTemplate() {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+                try {
+                    resultSet.beforeFirst();
+                    return new RowMapperResultSetExtractor<>(rowMapper, rows).extractData(resultSet);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    public List<BookDto> getAllBooks() {
+        return bookService.getAllBooks();
+    }
+}
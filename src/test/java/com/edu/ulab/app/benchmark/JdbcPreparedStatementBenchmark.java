@@ -0,0 +1,123 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка одного вызова JdbcTemplate-сервисов с серверными prepared statements pgjdbc и без них.
+ * {@code prepareThreshold=0} отключает серверную подготовку, {@code 1} включает её с первого выполнения.
+ * На H2 параметр игнорируется, поэтому сравнение имеет смысл на Postgres из docker-compose:
+ * {@code mvn -Pbenchmark -DskipTests verify -Djmh.args="JdbcPreparedStatementBenchmark -p url=jdbc:postgresql://localhost:5444/userbook"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JdbcPreparedStatementBenchmark {
+
+    @Param({"0", "1"})
+    private String prepareThreshold;
+
+    @Param({""})
+    private String url;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private BookService bookService;
+    private Long userId;
+    private BookDto book;
+
+    @Setup
+    public void setUp() {
+        List<String> args = new ArrayList<>(List.of(
+                "--persistence.engine=jdbc",
+                "--spring.datasource.hikari.data-source-properties.prepareThreshold=" + prepareThreshold));
+        if (!url.isEmpty()) {
+            args.addAll(List.of(
+                    "--spring.datasource.url=" + url,
+                    "--spring.datasource.username=admin",
+                    "--spring.datasource.password=admin",
+                    "--spring.datasource.driver-class-name=org.postgresql.Driver",
+                    "--spring.liquibase.enabled=true"));
+        }
+        context = BenchmarkContext.start(args.toArray(String[]::new));
+        userService = context.getBean(UserService.class);
+        bookService = context.getBean(BookService.class);
+
+        userId = userService.createUser(prepareUser()).getId();
+        book = bookService.createBook(prepareBook());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDto getUserById() {
+        return userService.getUserById(userId);
+    }
+
+    @Benchmark
+    public List<UserDto> getUsers() {
+        return userService.getUsers(0L, 20);
+    }
+
+    @Benchmark
+    public BookDto getBookById() {
+        return bookService.getBookById(book.getId());
+    }
+
+    @Benchmark
+    public List<BookDto> findBooksByUserId() {
+        return bookService.findBooksByUserId(userId);
+    }
+
+    @Benchmark
+    public BookDto updateBook() {
+        return bookService.updateBook(book);
+    }
+
+    @Benchmark
+    public BookDto createBook() {
+        return bookService.createBook(prepareBook());
+    }
+
+    private UserDto prepareUser() {
+        return UserDto.builder()
+                .fullName("Test Test")
+                .title("reader")
+                .age(30)
+                .build();
+    }
+
+    private BookDto prepareBook() {
+        return BookDto.builder()
+                .userId(userId)
+                .title("title")
+                .author("author")
+                .pageCount(300)
+                .build();
+    }
+}
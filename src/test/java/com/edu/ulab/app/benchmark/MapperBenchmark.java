@@ -0,0 +1,94 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.BookEntity;
+import com.edu.ulab.app.entity.UserEntity;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвертации MapStruct-мапперов {@link UserMapper} и {@link BookMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private final UserMapper userMapper = new UserMapperImpl();
+    private final BookMapper bookMapper = new BookMapperImpl();
+
+    private UserRequest userRequest;
+    private UserDto userDto;
+    private BookRequest bookRequest;
+    private BookDto bookDto;
+    private BookEntity bookEntity;
+
+    @Setup
+    public void setUp() {
+        userRequest = new UserRequest();
+        userRequest.setFullName("Test Test");
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+
+        userDto = userMapper.userRequestToUserDto(userRequest);
+        userDto.setId(1L);
+
+        bookRequest = new BookRequest();
+        bookRequest.setTitle("title");
+        bookRequest.setAuthor("author");
+        bookRequest.setPageCount(300);
+
+        bookDto = bookMapper.bookRequestToBookDto(bookRequest);
+        bookDto.setId(10L);
+        bookDto.setUserId(1L);
+
+        bookEntity = bookMapper.bookDtoToBookEntity(bookDto);
+        bookEntity.setUserEntity(new UserEntity());
+        bookEntity.getUserEntity().setId(1L);
+    }
+
+    @Benchmark
+    public UserDto userRequestToUserDto() {
+        return userMapper.userRequestToUserDto(userRequest);
+    }
+
+    @Benchmark
+    public UserEntity userDtoToUserEntity() {
+        return userMapper.userDtoToUserEntity(userDto);
+    }
+
+    @Benchmark
+    public BookDto bookRequestToBookDto() {
+        return bookMapper.bookRequestToBookDto(bookRequest);
+    }
+
+    @Benchmark
+    public BookEntity bookDtoToBookEntity() {
+        return bookMapper.bookDtoToBookEntity(bookDto);
+    }
+
+    @Benchmark
+    public BookDto bookEntityToBookDto() {
+        return bookMapper.bookEntityToBookDto(bookEntity);
+    }
+}
@@ -0,0 +1,136 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.web.converter.UserBookProtobufHttpMessageConverter;
+import com.edu.ulab.app.web.protobuf.UserBookProto;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Кодирование {@link UserBookResponse} и декодирование {@link UserBookRequest} конвертерами {@code UserController}
+ * в каждом формате. Размер тел печатается в {@code @Setup}:
+ * {@code mvn -Pbenchmark -DskipTests verify -Djmh.args="MessageFormatBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageFormatBenchmark {
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    private String format;
+
+    @Param({"10", "1000"})
+    private int bookCount;
+
+    private AbstractHttpMessageConverter<Object> converter;
+    private MediaType mediaType;
+    private UserBookResponse response;
+    private byte[] requestBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        converter = converter(format);
+        mediaType = converter.getSupportedMediaTypes().get(0);
+        response = UserBookResponse.builder()
+                .userId(1_000_000L)
+                .booksIdList(LongStream.range(1_000_000L, 1_000_000L + bookCount).boxed().toList())
+                .build();
+        UserBookRequest request = prepareRequest(bookCount);
+        requestBody = converter instanceof AbstractJackson2HttpMessageConverter jacksonConverter
+                ? jacksonConverter.getObjectMapper().writeValueAsBytes(request)
+                : toProto(request).toByteArray();
+        System.out.printf("%n%s, %d books: response %d bytes, request %d bytes%n",
+                format, bookCount, writeResponse().getBodyAsBytes().length, requestBody.length);
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage writeResponse() throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(response, mediaType, outputMessage);
+        return outputMessage;
+    }
+
+    @Benchmark
+    public Object readRequest() throws IOException {
+        return converter.read(UserBookRequest.class, new MockHttpInputMessage(requestBody));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AbstractHttpMessageConverter<Object> converter(String format) {
+        return (AbstractHttpMessageConverter<Object>) (AbstractHttpMessageConverter<?>) switch (format) {
+            case "json" -> new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+            case "smile" -> new MappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.smile().build());
+            case "cbor" -> new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build());
+            case "protobuf" -> new UserBookProtobufHttpMessageConverter();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+    }
+
+    private static UserBookRequest prepareRequest(int bookCount) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Test Test");
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(IntStream.range(0, bookCount)
+                .mapToObj(i -> {
+                    BookRequest bookRequest = new BookRequest();
+                    bookRequest.setTitle("title " + i);
+                    bookRequest.setAuthor("author " + i % 10);
+                    bookRequest.setPageCount(100 + i);
+                    return bookRequest;
+                })
+                .toList());
+        return request;
+    }
+
+    private static UserBookProto.UserBookRequest toProto(UserBookRequest request) {
+        UserRequest userRequest = request.getUserRequest();
+        List<UserBookProto.BookRequest> books = request.getBookRequests().stream()
+                .map(book -> UserBookProto.BookRequest.newBuilder()
+                        .setTitle(book.getTitle())
+                        .setAuthor(book.getAuthor())
+                        .setPageCount(book.getPageCount())
+                        .build())
+                .toList();
+        return UserBookProto.UserBookRequest.newBuilder()
+                .setUserRequest(UserBookProto.UserRequest.newBuilder()
+                        .setFullName(userRequest.getFullName())
+                        .setTitle(userRequest.getTitle())
+                        .setAge(userRequest.getAge()))
+                .addAllBookRequests(books)
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Одни и те же операции {@link UserService} и {@link BookService}
+ * на движке, выбранном свойством {@code persistence.engine}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceEngineBenchmark {
+
+    @Param({"jdbc", "jpa"})
+    private String engine;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private BookService bookService;
+    private Long userId;
+    private Long bookId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("--persistence.engine=" + engine);
+        userService = context.getBean(UserService.class);
+        bookService = context.getBean(BookService.class);
+
+        userId = userService.createUser(prepareUser()).getId();
+        List<BookDto> books = bookService.createBooks(IntStream.range(0, 10)
+                .mapToObj(i -> prepareBook())
+                .toList());
+        bookId = books.get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDto createUser() {
+        return userService.createUser(prepareUser());
+    }
+
+    @Benchmark
+    public UserDto getUserById() {
+        return userService.getUserById(userId);
+    }
+
+    @Benchmark
+    public List<UserDto> getUsers() {
+        return userService.getUsers(0L, 20);
+    }
+
+    @Benchmark
+    public BookDto createBook() {
+        return bookService.createBook(prepareBook());
+    }
+
+    @Benchmark
+    public List<BookDto> createBooks() {
+        return bookService.createBooks(IntStream.range(0, 10)
+                .mapToObj(i -> prepareBook())
+                .toList());
+    }
+
+    @Benchmark
+    public BookDto getBookById() {
+        return bookService.getBookById(bookId);
+    }
+
+    @Benchmark
+    public List<Long> findBookIdsByUserId() {
+        return bookService.findBookIdsByUserId(userId);
+    }
+
+    @Benchmark
+    public List<BookDto> findBooksByUserId() {
+        return bookService.findBooksByUserId(userId);
+    }
+
+    private UserDto prepareUser() {
+        return UserDto.builder()
+                .fullName("Test Test")
+                .title("reader")
+                .age(30)
+                .build();
+    }
+
+    private BookDto prepareBook() {
+        return BookDto.builder()
+                .userId(userId)
+                .title("title")
+                .author("author")
+                .pageCount(300)
+                .build();
+    }
+}
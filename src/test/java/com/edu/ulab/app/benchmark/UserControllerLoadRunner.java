@@ -0,0 +1,162 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Нагрузочный прогон {@code UserController} на пуле потоков Tomcat и встроенной H2 в режимах
+ * platform (соединения ждут внутри Hikari) и bounded (очередь {@code BoundedDataSource} перед Hikari):
+ * {@code clients} клиентов по замкнутому циклу шлют 90% get и 10% create,
+ * в конце печатаются пропускная способность и перцентили задержки.
+ * <p>
+ * mvn -Pload-test -DskipTests verify [-Dload.args="clients=1000 seconds=30 modes=platform,bounded"]
+ * <p>
+ * Режима на виртуальных потоках нет: проект собирается под Java 17 и Spring Boot 2.7,
+ * сравнение с ним появится вместе с переходом на Java 21.
+ */
+public class UserControllerLoadRunner {
+    private static final String USER_URL = "/app/api/v1/user";
+    private static final int SEED_USERS = 1000;
+
+    private final int clients;
+    private final Duration warmup;
+    private final Duration measurement;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    UserControllerLoadRunner(int clients, Duration warmup, Duration measurement) {
+        this.clients = clients;
+        this.warmup = warmup;
+        this.measurement = measurement;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = Stream.of(args)
+                .filter(arg -> arg.contains("="))
+                .collect(Collectors.toMap(arg -> arg.substring(0, arg.indexOf('=')),
+                        arg -> arg.substring(arg.indexOf('=') + 1)));
+        UserControllerLoadRunner runner = new UserControllerLoadRunner(
+                Integer.parseInt(options.getOrDefault("clients", "1000")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "30"))));
+
+        List<String> report = new ArrayList<>();
+        for (String mode : options.getOrDefault("modes", "platform,bounded").split(",")) {
+            report.add(runner.run(mode, "bounded".equals(mode)));
+        }
+        System.out.printf("%-9s %10s %10s %9s %9s %9s %9s %7s%n",
+                "mode", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        report.forEach(System.out::println);
+    }
+
+    private String run(String mode, boolean bounded) throws Exception {
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(WebApplicationType.SERVLET,
+                "--server.port=0",
+                "--bounded-data-source.enabled=" + bounded)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            UserDataFacade userDataFacade = context.getBean(UserDataFacade.class);
+            long[] userIds = IntStream.range(0, SEED_USERS)
+                    .mapToLong(i -> userDataFacade.createUserWithBooks(UserDataFacadeBenchmark.prepareRequest(3))
+                            .getUserId())
+                    .toArray();
+            byte[] createBody = objectMapper.writeValueAsBytes(UserDataFacadeBenchmark.prepareRequest(3));
+
+            ExecutorService clientExecutor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors());
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            try {
+                String baseUrl = "http://localhost:" + port + USER_URL;
+                drive(client, baseUrl, userIds, createBody, warmup, new Recorder(3), new AtomicLong());
+
+                Recorder recorder = new Recorder(3);
+                AtomicLong errors = new AtomicLong();
+                long start = System.nanoTime();
+                drive(client, baseUrl, userIds, createBody, measurement, recorder, errors);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                Histogram histogram = recorder.getIntervalHistogram();
+                return String.format("%-9s %10d %10.0f %9.2f %9.2f %9.2f %9.2f %7d",
+                        mode,
+                        histogram.getTotalCount(),
+                        histogram.getTotalCount() / seconds,
+                        millis(histogram.getValueAtPercentile(50)),
+                        millis(histogram.getValueAtPercentile(99)),
+                        millis(histogram.getValueAtPercentile(99.9)),
+                        millis(histogram.getMaxValue()),
+                        errors.get());
+            } finally {
+                clientExecutor.shutdownNow();
+            }
+        }
+    }
+
+    private void drive(HttpClient client, String baseUrl, long[] userIds, byte[] createBody,
+                       Duration duration, Recorder recorder, AtomicLong errors) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        CompletableFuture.allOf(IntStream.range(0, clients)
+                        .mapToObj(i -> loop(client, baseUrl, userIds, createBody, deadline, recorder, errors))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    private CompletableFuture<Void> loop(HttpClient client, String baseUrl, long[] userIds, byte[] createBody,
+                                         long deadline, Recorder recorder, AtomicLong errors) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return client.sendAsync(nextRequest(baseUrl, userIds, createBody), HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    recorder.recordValue(System.nanoTime() - start);
+                    if (error != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, baseUrl, userIds, createBody, deadline, recorder, errors));
+    }
+
+    private static HttpRequest nextRequest(String baseUrl, long[] userIds, byte[] createBody) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(10) == 0) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/create"))
+                    .header("Content-Type", "application/json")
+                    .header("rqid", "load")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(createBody))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/get/" + userIds[random.nextInt(userIds.length)]))
+                .GET()
+                .build();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Операции {@link UserDataFacade} целиком, на встроенной БД и без кэша,
+ * для каждого движка {@code persistence.engine}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDataFacadeBenchmark {
+
+    @Param({"jdbc", "jpa"})
+    private String engine;
+
+    @Param({"10"})
+    private int booksPerUser;
+
+    private ConfigurableApplicationContext context;
+    private UserDataFacade userDataFacade;
+    private UserBookRequest request;
+    private Long userId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("--persistence.engine=" + engine);
+        userDataFacade = context.getBean(UserDataFacade.class);
+        request = prepareRequest(booksPerUser);
+        userId = userDataFacade.createUserWithBooks(request).getUserId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserBookResponse createUserWithBooks() {
+        return userDataFacade.createUserWithBooks(request);
+    }
+
+    @Benchmark
+    public UserBookResponse getUserWithBooks() {
+        return userDataFacade.getUserWithBooks(userId);
+    }
+
+    static UserBookRequest prepareRequest(int booksPerUser) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Test Test");
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+
+        List<BookRequest> bookRequests = IntStream.range(0, booksPerUser)
+                .mapToObj(i -> {
+                    BookRequest bookRequest = new BookRequest();
+                    bookRequest.setTitle("title " + i);
+                    bookRequest.setAuthor("author " + i);
+                    bookRequest.setPageCount(100 + i);
+                    return bookRequest;
+                })
+                .toList();
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(bookRequests);
+        return request;
+    }
+}
@@ -0,0 +1,73 @@
+package com.edu.ulab.app.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты ограничения числа соединений {@link BoundedDataSource}.
+ */
+@UnitTest
+class BoundedDataSourceTest {
+
+    @Mock
+    DataSource dataSource;
+
+    @Test
+    @DisplayName("Все разрешения заняты. Получение соединения падает по таймауту")
+    void getConnection_whenNoPermits_thenTimeout() throws SQLException {
+        // given
+        when(dataSource.getConnection()).thenReturn(mock(Connection.class));
+        BoundedDataSource boundedDataSource = new BoundedDataSource(dataSource, 1, Duration.ofMillis(10));
+
+        // when
+        boundedDataSource.getConnection();
+
+        // then
+        assertThatThrownBy(boundedDataSource::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class);
+    }
+
+    @Test
+    @DisplayName("Закрытие соединения. Разрешение возвращается один раз")
+    void closeConnection_thenPermitReleasedOnce() throws SQLException {
+        // given
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        BoundedDataSource boundedDataSource = new BoundedDataSource(dataSource, 2, Duration.ofMillis(10));
+
+        // when
+        Connection borrowed = boundedDataSource.getConnection();
+        borrowed.close();
+        borrowed.close();
+
+        // then
+        verify(connection, times(2)).close();
+        assertThat(boundedDataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Ошибка пула. Разрешение не теряется")
+    void getConnection_whenPoolFails_thenPermitReleased() throws SQLException {
+        // given
+        when(dataSource.getConnection()).thenThrow(new SQLException("pool is closed"));
+        BoundedDataSource boundedDataSource = new BoundedDataSource(dataSource, 1, Duration.ofMillis(10));
+
+        // then
+        assertThatThrownBy(boundedDataSource::getConnection).hasMessage("pool is closed");
+        assertThat(boundedDataSource.availablePermits()).isEqualTo(1);
+    }
+}
@@ -24,7 +24,7 @@ public class PostgreSqlContainerConfig {
     private static final String POSTGRESQL_DRIVER_CLASS_NAME = "org.postgresql.Driver";
     private static final String JDBC_URL_FORMAT = "jdbc:postgresql://%s:%s/%s";
 
-    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
             DockerImageName.parse(IMAGE_VERSION).asCompatibleSubstituteFor("postgres"))
             .withDatabaseName(DB_NAME)
             .withUsername(USERNAME)
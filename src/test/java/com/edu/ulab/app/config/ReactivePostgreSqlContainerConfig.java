@@ -0,0 +1,34 @@
+package com.edu.ulab.app.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static com.edu.ulab.app.config.PostgreSqlContainerConfig.POSTGRES;
+
+/**
+ * R2DBC-подключение к тому же контейнеру, что и {@link PostgreSqlContainerConfig}.
+ * Схему создаёт Liquibase через JDBC-подключение.
+ */
+@TestConfiguration
+public class ReactivePostgreSqlContainerConfig {
+
+    private static final String SCHEMA = "ulab_edu";
+
+    @Bean
+    public ConnectionFactory connectionFactory() {
+        return ConnectionFactories.get(ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                .option(ConnectionFactoryOptions.HOST, POSTGRES.getContainerIpAddress())
+                .option(ConnectionFactoryOptions.PORT, POSTGRES.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT))
+                .option(ConnectionFactoryOptions.DATABASE, POSTGRES.getDatabaseName())
+                .option(ConnectionFactoryOptions.USER, POSTGRES.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, POSTGRES.getPassword())
+                .option(Option.valueOf("schema"), SCHEMA)
+                .build());
+    }
+}
@@ -0,0 +1,23 @@
+package com.edu.ulab.app.config;
+
+import org.hibernate.SessionFactory;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Очищает second-level cache перед каждым тестом. Данные из {@code @Sql} пишутся мимо Hibernate
+ * и откатываются вместе с тестом, поэтому закэшированное в одном тесте не должно попадать в следующий.
+ */
+public class SecondLevelCacheEvictingListener extends AbstractTestExecutionListener {
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        testContext.getApplicationContext()
+                .getBeanProvider(EntityManagerFactory.class)
+                .ifAvailable(entityManagerFactory -> entityManagerFactory.unwrap(SessionFactory.class)
+                        .getCache()
+                        .evictAllRegions());
+    }
+}
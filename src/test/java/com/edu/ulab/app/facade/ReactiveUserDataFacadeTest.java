@@ -0,0 +1,304 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.PostgreSqlContainerConfig;
+import com.edu.ulab.app.config.ReactivePostgreSqlContainerConfig;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.ReactiveBookService;
+import com.edu.ulab.app.service.ReactiveUserService;
+import com.edu.ulab.app.service.impl.ReactiveBookServiceImpl;
+import com.edu.ulab.app.service.impl.ReactiveUserServiceImpl;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.request.UserUpdateRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Тесты реактивного фасада {@link ReactiveUserDataFacade} на R2DBC.
+ */
+@DataR2dbcTest
+@ActiveProfiles({"test", "reactive"})
+@Import({PostgreSqlContainerConfig.class, ReactivePostgreSqlContainerConfig.class,
+        ReactiveUserServiceImpl.class, ReactiveBookServiceImpl.class, ReactiveUserDataFacade.class,
+        UserMapperImpl.class, BookMapperImpl.class})
+@DisplayName("Testing reactive user facade.")
+class ReactiveUserDataFacadeTest {
+
+    @Autowired
+    ReactiveUserDataFacade userDataFacade;
+
+    @SpyBean
+    ReactiveUserService userService;
+
+    @Autowired
+    ReactiveBookService bookService;
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    @BeforeEach
+    void cleanUp() {
+        databaseClient.sql("DELETE FROM BOOK").then()
+                .then(databaseClient.sql("DELETE FROM PERSON").then())
+                .block();
+    }
+
+    @Test
+    @DisplayName("Создание пользователя с книгами. Должно вернуть id пользователя и книг в порядке запроса")
+    void createUserWithBooks_thenGet() {
+        // given
+        UserBookRequest request = userBookRequest("Reactive reader", "first", "second");
+
+        // when
+        UserBookResponse created = userDataFacade.createUserWithBooks(request).block();
+
+        // then
+        assertThat(created).isNotNull();
+        assertThat(created.getBooksIdList()).hasSize(2).isSorted();
+        StepVerifier.create(userDataFacade.getUserWithBooks(created.getUserId()))
+                .assertNext(found -> {
+                    assertThat(found.getUserId()).isEqualTo(created.getUserId());
+                    assertThat(found.getBooksIdList()).isEqualTo(created.getBooksIdList());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Обновление пользователя. Изменённая книга сохраняет id, новая добавляется")
+    void updateUserWithBooks_shouldReplaceBooks() {
+        // given
+        UserBookResponse created = userDataFacade.createUserWithBooks(
+                userBookRequest("Reactive writer", "old")).block();
+        UserUpdateRequest userRequest = new UserUpdateRequest();
+        userRequest.setId(created.getUserId());
+        userRequest.setFullName("Reactive editor");
+        userRequest.setTitle("editor");
+        userRequest.setAge(40);
+        UserBookUpdateRequest request = new UserBookUpdateRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of(bookRequest("new"), bookRequest("newer")));
+
+        // when
+        UserBookResponse updated = userDataFacade.updateUserWithBooks(request, null).block();
+
+        // then
+        assertThat(updated.getBooksIdList()).hasSize(2)
+                .startsWith(created.getBooksIdList().get(0));
+        StepVerifier.create(userDataFacade.getUserWithBooks(created.getUserId()))
+                .assertNext(found -> assertThat(found.getBooksIdList()).isEqualTo(updated.getBooksIdList()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Обновление с устаревшим If-Match. PreconditionFailedException, юзер и книги не меняются")
+    void updateUserWithBooks_whenIfMatchStale_thenPreconditionFailed() {
+        // given
+        UserBookResponse created = userDataFacade.createUserWithBooks(
+                userBookRequest("Reactive stale", "old")).block();
+        long version = version(created.getUserId());
+        UserBookUpdateRequest request = userBookUpdateRequest(created.getUserId(), "new");
+
+        // then
+        StepVerifier.create(userDataFacade.updateUserWithBooks(request, version - 1))
+                .expectError(PreconditionFailedException.class)
+                .verify();
+        assertThat(version(created.getUserId())).isEqualTo(version);
+        StepVerifier.create(userDataFacade.getUserWithBooks(created.getUserId()))
+                .assertNext(found -> assertThat(found.getBooksIdList()).isEqualTo(created.getBooksIdList()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Версия изменилась между чтением и записью. Повтор в новой транзакции с новой версией")
+    void updateUserWithBooks_whenVersionChanged_thenRetried() {
+        // given
+        UserBookResponse created = userDataFacade.createUserWithBooks(
+                userBookRequest("Reactive raced", "old")).block();
+        Long userId = created.getUserId();
+        long version = version(userId);
+        doReturn(Mono.just(version - 1)).doCallRealMethod().when(userService).getUserVersion(userId);
+
+        // when
+        UserBookResponse updated = userDataFacade.updateUserWithBooks(userBookUpdateRequest(userId, "new"), null)
+                .block();
+
+        // then
+        assertThat(updated.getVersion()).isEqualTo(version(userId)).isGreaterThan(version);
+        StepVerifier.create(userDataFacade.getUserWithBooks(userId))
+                .assertNext(found -> assertThat(found.getBooksIdList()).isEqualTo(updated.getBooksIdList()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Обновление несуществующего пользователя. Должно выбросить NotFoundException")
+    void updateUserWithBooks_whenUserNotExists_thenNotFound() {
+        // given
+        UserUpdateRequest userRequest = new UserUpdateRequest();
+        userRequest.setId(-1L);
+        userRequest.setFullName("Nobody");
+        userRequest.setTitle("nobody");
+        UserBookUpdateRequest request = new UserBookUpdateRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of(bookRequest("orphan")));
+
+        // then
+        StepVerifier.create(userDataFacade.updateUserWithBooks(request, null))
+                .expectError(NotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Удаление пользователя. Пользователь и книги больше не находятся")
+    void deleteUserWithBooks_thenNotFound() {
+        // given
+        UserBookResponse created = userDataFacade.createUserWithBooks(
+                userBookRequest("Reactive deleted", "gone")).block();
+
+        // when
+        StepVerifier.create(userDataFacade.deleteUserWithBooks(created.getUserId()))
+                .verifyComplete();
+
+        // then
+        StepVerifier.create(userDataFacade.getUserWithBooks(created.getUserId()))
+                .expectError(NotFoundException.class)
+                .verify();
+        StepVerifier.create(databaseClient.sql("SELECT count(*) AS cnt FROM BOOK")
+                        .map(row -> row.get("cnt", Long.class))
+                        .one())
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Ошибка при вставке книг. Пользователь не сохраняется")
+    void createUserWithBooks_whenBookFails_thenRollback() {
+        // given
+        UserBookRequest request = userBookRequest("Reactive rollback", "valid");
+        request.getBookRequests().get(0).setAuthor("x".repeat(100));
+
+        // then
+        StepVerifier.create(userDataFacade.createUserWithBooks(request))
+                .expectError()
+                .verify();
+        StepVerifier.create(databaseClient.sql("SELECT count(*) AS cnt FROM PERSON")
+                        .map(row -> row.get("cnt", Long.class))
+                        .one())
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Версия юзера. Растёт при обновлении юзера и при каждом изменении его книг, как у JDBC и JPA")
+    void changeUserOrBooks_thenVersionIncremented() {
+        // given
+        UserDto userDto = userService.createUser(UserDto.builder()
+                .fullName("Reactive versioned")
+                .title("reader")
+                .age(30)
+                .build()).block();
+        Long userId = userDto.getId();
+        long initialVersion = version(userId);
+        List<Long> versions = new ArrayList<>();
+
+        // when
+        userDto.setAge(31);
+        userService.updateUser(userDto, initialVersion).block();
+        versions.add(version(userId));
+        List<BookDto> book = bookService.createBooks(List.of(bookDto(userId, 10))).collectList().block();
+        versions.add(version(userId));
+        List<BookDto> books = bookService.createBooks(List.of(bookDto(userId, 20), bookDto(userId, 30)))
+                .collectList().block();
+        versions.add(version(userId));
+        book.get(0).setPageCount(11);
+        bookService.updateBooks(book).blockLast();
+        versions.add(version(userId));
+        bookService.updateBooks(books).blockLast();
+        versions.add(version(userId));
+        bookService.deleteBooksByIds(userId, List.of(book.get(0).getId())).block();
+        versions.add(version(userId));
+        bookService.deleteAllByUserId(userId).block();
+        versions.add(version(userId));
+        bookService.deleteAllByUserId(userId).block();
+
+        // then
+        assertThat(initialVersion).isZero();
+        assertThat(versions).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(version(userId)).isEqualTo(7L);
+    }
+
+    private long version(Long userId) {
+        return databaseClient.sql("SELECT VERSION FROM PERSON WHERE ID = :id")
+                .bind("id", userId)
+                .map(row -> row.get("VERSION", Number.class).longValue())
+                .one()
+                .block();
+    }
+
+    private static BookDto bookDto(Long userId, long pageCount) {
+        return BookDto.builder()
+                .userId(userId)
+                .title("versioned")
+                .author("author")
+                .pageCount(pageCount)
+                .build();
+    }
+
+    private static UserBookRequest userBookRequest(String fullName, String... bookTitles) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName(fullName);
+        userRequest.setTitle(fullName.toLowerCase());
+        userRequest.setAge(30);
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(Stream.of(bookTitles)
+                .map(ReactiveUserDataFacadeTest::bookRequest)
+                .toList());
+        return request;
+    }
+
+    private static UserBookUpdateRequest userBookUpdateRequest(Long userId, String... bookTitles) {
+        UserUpdateRequest userRequest = new UserUpdateRequest();
+        userRequest.setId(userId);
+        userRequest.setFullName("Reactive editor");
+        userRequest.setTitle("editor");
+        userRequest.setAge(40);
+        UserBookUpdateRequest request = new UserBookUpdateRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(Stream.of(bookTitles)
+                .map(ReactiveUserDataFacadeTest::bookRequest)
+                .toList());
+        return request;
+    }
+
+    private static BookRequest bookRequest(String title) {
+        BookRequest bookRequest = new BookRequest();
+        bookRequest.setTitle(title);
+        bookRequest.setAuthor("author");
+        bookRequest.setPageCount(100);
+        return bookRequest;
+    }
+}
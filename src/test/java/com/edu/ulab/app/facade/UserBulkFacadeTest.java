@@ -0,0 +1,194 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookImportResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты потокового импорта {@link UserBulkFacade}.
+ */
+@UnitTest
+@DisplayName("Testing bulk user import.")
+class UserBulkFacadeTest {
+
+    private static final String USER = "{\"userRequest\":{\"fullName\":\"Test\",\"title\":\"reader\",\"age\":20},"
+            + "\"bookRequests\":[{\"title\":\"book\",\"author\":\"author\",\"pageCount\":100}]}";
+
+    @Mock
+    UserDataFacade userDataFacade;
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    BookService bookService;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    UserBulkFacade userBulkFacade;
+
+    @BeforeEach
+    void setUp() {
+        userBulkFacade = new UserBulkFacade(userDataFacade, userService, objectMapper, 2);
+    }
+
+    @Test
+    @DisplayName("Импорт JSON-массива. Должен писать пачками по batch-size")
+    void importJsonArray_shouldWriteInBatches() throws IOException {
+        // given
+        when(userDataFacade.createUsersWithBooks(anyList())).thenAnswer(invocation -> respond(invocation.getArgument(0)));
+        String body = "[" + String.join(",", USER, USER, USER) + "]";
+
+        // when
+        List<UserBookImportResponse> results = importBody(body);
+
+        // then
+        verify(userDataFacade, times(2)).createUsersWithBooks(anyList());
+        assertThat(results).extracting(UserBookImportResponse::getIndex).containsExactly(0L, 1L, 2L);
+        assertThat(results).allSatisfy(result -> assertThat(result.getErrorMessage()).isNull());
+    }
+
+    @Test
+    @DisplayName("Импорт NDJSON. Невалидный элемент должен получить ошибку, остальные создаться")
+    void importNdjson_shouldReportInvalidItems() throws IOException {
+        // given
+        when(userDataFacade.createUsersWithBooks(anyList())).thenAnswer(invocation -> respond(invocation.getArgument(0)));
+        String body = USER + "\n{\"bookRequests\":[]}\n" + USER + "\n";
+
+        // when
+        List<UserBookImportResponse> results = importBody(body);
+
+        // then
+        assertThat(results).hasSize(3);
+        assertThat(results).filteredOn(result -> result.getErrorMessage() != null)
+                .extracting(UserBookImportResponse::getIndex)
+                .containsExactly(1L);
+        assertThat(results).filteredOn(result -> result.getUserId() != null)
+                .extracting(UserBookImportResponse::getIndex)
+                .containsExactlyInAnyOrder(0L, 2L);
+    }
+
+    @Test
+    @DisplayName("Ошибка БД в пачке. Ошибку должен получить только упавший элемент")
+    void importBatchFailure_shouldReportOnlyFailedItem() throws IOException {
+        // given
+        when(userDataFacade.createUsersWithBooks(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate title"))
+                .thenAnswer(invocation -> respond(invocation.getArgument(0)));
+        when(userDataFacade.createUserWithBooks(any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate title"))
+                .thenReturn(UserBookResponse.builder().userId(2L).booksIdList(List.of(200L)).build());
+        String body = "[" + String.join(",", USER, USER, USER) + "]";
+
+        // when
+        List<UserBookImportResponse> results = importBody(body);
+
+        // then
+        verify(userDataFacade, times(2)).createUserWithBooks(any());
+        assertThat(results).extracting(UserBookImportResponse::getIndex).containsExactly(0L, 1L, 2L);
+        assertThat(results).extracting(UserBookImportResponse::getErrorMessage)
+                .containsExactly("duplicate title", null, null);
+        assertThat(results.get(1).getUserId()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("Упавшая пачка с элементом без bookRequests. Он создаётся без книг, ошибка не из БД не прерывает импорт")
+    void importBatchFailure_withoutBookRequests_shouldReportEachItem() throws IOException {
+        // given
+        UserDataFacade realFacade = new UserDataFacade(userService, bookService, new UserMapperImpl(),
+                new BookMapperImpl(), Optional.empty());
+        userBulkFacade = new UserBulkFacade(realFacade, userService, objectMapper, 3);
+        when(userService.createUsers(anyList())).thenThrow(new DataIntegrityViolationException("duplicate title"));
+        when(userService.createUser(any()))
+                .thenReturn(UserDto.builder().id(1L).build())
+                .thenThrow(new IllegalStateException())
+                .thenReturn(UserDto.builder().id(3L).build());
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        String withoutBooks = "{\"userRequest\":{\"fullName\":\"Test\",\"title\":\"reader\",\"age\":20}}";
+        String body = withoutBooks + "\n" + USER + "\n" + USER + "\n";
+
+        // when
+        List<UserBookImportResponse> results = importBody(body);
+
+        // then
+        assertThat(results).extracting(UserBookImportResponse::getIndex).containsExactly(0L, 1L, 2L);
+        assertThat(results).extracting(UserBookImportResponse::getErrorMessage)
+                .containsExactly(null, "IllegalStateException", null);
+        assertThat(results.get(0).getUserId()).isEqualTo(1L);
+        assertThat(results.get(0).getBooksIdList()).isEmpty();
+        assertThat(results.get(2).getUserId()).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("Экспорт. Каждый юзер должен уйти отдельной строкой NDJSON")
+    void export_shouldWriteOneLinePerUser() throws IOException {
+        // given
+        doAnswer(invocation -> {
+            Consumer<UserBookIdsDto> consumer = invocation.getArgument(0);
+            consumer.accept(new UserBookIdsDto(1L, List.of(10L, 11L), 0L));
+            consumer.accept(new UserBookIdsDto(2L, List.of(), 0L));
+            return null;
+        }).when(userService).forEachUserWithBookIds(any());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        userBulkFacade.exportUsersWithBooks(out);
+
+        // then
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"userId\":1,\"booksIdList\":[10,11]}\n{\"userId\":2,\"booksIdList\":[]}\n");
+    }
+
+    private List<UserBookImportResponse> importBody(String body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userBulkFacade.importUsersWithBooks(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+
+        List<UserBookImportResponse> results = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            assertThat(line).startsWith("{");
+            results.add(objectMapper.readValue(line, UserBookImportResponse.class));
+        }
+        return results;
+    }
+
+    private List<UserBookResponse> respond(List<UserBookRequest> requests) {
+        List<UserBookResponse> responses = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            responses.add(UserBookResponse.builder()
+                    .userId((long) i + 1)
+                    .booksIdList(List.of((long) i + 100))
+                    .build());
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,145 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.CacheConfig;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.request.UserUpdateRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты кэширования {@link UserDataFacade#getUserWithBooks(Long)}.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(classes = {CacheConfig.class, UserDataFacade.class})
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+@DisplayName("Testing user books cache.")
+class UserDataFacadeCacheTest {
+
+    @Autowired
+    UserDataFacade userDataFacade;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    UserService userService;
+
+    @MockBean
+    BookService bookService;
+
+    @MockBean
+    UserMapper userMapper;
+
+    @MockBean
+    BookMapper bookMapper;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.USER_BOOKS_CACHE).clear();
+    }
+
+    @Test
+    @DisplayName("Повторное получение юзера. Должно отдаваться из кэша с версией из того же чтения")
+    void getUserWithBooks_shouldBeCached() {
+        // given
+        long userId = 1L;
+        when(userService.getUserWithBookIds(userId))
+                .thenReturn(new UserBookIdsDto(userId, List.of(10L, 11L), 3L));
+
+        // when
+        UserBookResponse first = userDataFacade.getUserWithBooks(userId);
+        UserBookResponse second = userDataFacade.getUserWithBooks(userId);
+
+        // then
+        assertThat(second).isEqualTo(first);
+        assertThat(first.getVersion()).isEqualTo(3L);
+        verify(userService, times(1)).getUserWithBookIds(userId);
+    }
+
+    @Test
+    @DisplayName("Получение юзера после обновления. Не должно отдавать устаревшие книги")
+    void getUserWithBooks_afterUpdate_shouldNotBeStale() {
+        // given
+        long userId = 1L;
+        UserDto userDto = prepareUserDto(userId);
+        when(userService.getUserById(userId)).thenReturn(userDto);
+        when(userService.getUserWithBookIds(userId)).thenReturn(
+                new UserBookIdsDto(userId, List.of(10L, 11L), 0L), new UserBookIdsDto(userId, List.of(12L), 0L));
+        when(userMapper.userUpdateRequestToUserDto(any())).thenReturn(userDto);
+
+        // when
+        userDataFacade.getUserWithBooks(userId);
+        userDataFacade.updateUserWithBooks(prepareUpdateRequest(userId), null);
+        UserBookResponse afterUpdate = userDataFacade.getUserWithBooks(userId);
+
+        // then
+        assertThat(afterUpdate.getBooksIdList()).containsExactly(12L);
+        verify(userService, times(2)).getUserWithBookIds(userId);
+    }
+
+    @Test
+    @DisplayName("Получение юзера после удаления. Не должно отдавать удалённого юзера из кэша")
+    void getUserWithBooks_afterDelete_shouldNotBeStale() {
+        // given
+        long userId = 1L;
+        when(userService.getUserById(userId)).thenReturn(prepareUserDto(userId));
+        when(userService.getUserWithBookIds(userId))
+                .thenReturn(new UserBookIdsDto(userId, List.of(10L), 0L))
+                .thenThrow(new NotFoundException("User not found by id: " + userId));
+
+        // when
+        userDataFacade.getUserWithBooks(userId);
+        userDataFacade.deleteUserWithBooks(userId, null);
+
+        // then
+        assertThatThrownBy(() -> userDataFacade.getUserWithBooks(userId))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    private UserDto prepareUserDto(long id) {
+        return UserDto.builder()
+                .id(id)
+                .fullName("Kirill")
+                .title("reader")
+                .age(50)
+                .build();
+    }
+
+    private UserBookUpdateRequest prepareUpdateRequest(long id) {
+        UserUpdateRequest userRequest = new UserUpdateRequest();
+        userRequest.setId(id);
+        userRequest.setFullName("Kirill");
+        userRequest.setTitle("reader");
+        userRequest.setAge(50);
+
+        UserBookUpdateRequest request = new UserBookUpdateRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of());
+        return request;
+    }
+}
@@ -0,0 +1,88 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты удаления в {@link UserDataFacade#deleteUserWithBooks(Long, Long)}.
+ */
+@UnitTest
+@DisplayName("Testing user delete.")
+class UserDataFacadeDeleteTest {
+    private static final long USER_ID = 1L;
+    private static final long VERSION = 5L;
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    BookService bookService;
+
+    UserDataFacade userDataFacade;
+
+    @BeforeEach
+    void setUp() {
+        userDataFacade = new UserDataFacade(userService, bookService, new UserMapperImpl(), new BookMapperImpl(),
+                Optional.empty());
+    }
+
+    @Test
+    @DisplayName("Удаление юзера. Строка юзера блокируется до удаления книг")
+    void delete_shouldLockUserBeforeBooks() {
+        // given
+        when(userService.lockUserVersion(USER_ID)).thenReturn(VERSION);
+
+        // when
+        userDataFacade.deleteUserWithBooks(USER_ID, VERSION);
+
+        // then
+        InOrder inOrder = inOrder(userService, bookService);
+        inOrder.verify(userService).lockUserVersion(USER_ID);
+        inOrder.verify(bookService).deleteAllByUserId(USER_ID);
+        inOrder.verify(userService).deleteUserById(USER_ID);
+    }
+
+    @Test
+    @DisplayName("If-Match со старой версией. PreconditionFailedException без удаления")
+    void deleteWithStaleIfMatch_shouldFailWithoutWrites() {
+        // given
+        when(userService.lockUserVersion(USER_ID)).thenReturn(VERSION);
+
+        // then
+        assertThatThrownBy(() -> userDataFacade.deleteUserWithBooks(USER_ID, VERSION - 1))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(bookService, never()).deleteAllByUserId(anyLong());
+        verify(userService, never()).deleteUserById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Удаление несуществующего юзера. NotFoundException без удаления книг")
+    void deleteMissingUser_shouldFailWithoutWrites() {
+        // given
+        when(userService.lockUserVersion(USER_ID)).thenThrow(new NotFoundException("User not found by id: 1"));
+
+        // then
+        assertThatThrownBy(() -> userDataFacade.deleteUserWithBooks(USER_ID, null))
+                .isInstanceOf(NotFoundException.class);
+        verify(bookService, never()).deleteAllByUserId(anyLong());
+    }
+}
@@ -0,0 +1,195 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.RetryConfig;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.request.UserUpdateRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.retry.annotation.RetryConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.interceptor.BeanFactoryTransactionAttributeSourceAdvisor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты повтора {@link UserDataFacade#updateUserWithBooks(UserBookUpdateRequest, Long)} при конфликте версий.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(classes = {RetryConfig.class, UserDataFacade.class,
+        UserDataFacadeRetryTest.TransactionConfig.class}, properties = {
+        "user-update.retry.max-attempts=3",
+        "user-update.retry.delay-ms=1",
+        "user-update.retry.max-delay-ms=5"})
+@DisplayName("Testing user update retry.")
+class UserDataFacadeRetryTest {
+    private static final long USER_ID = 1L;
+
+    /**
+     * Настоящий менеджер транзакций: без него {@code @Transactional} не проксируется
+     * и порядок советников повтора и транзакции ничем не проверяется.
+     */
+    @TestConfiguration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+        @Bean
+        DataSource dataSource() {
+            return new DriverManagerDataSource("jdbc:h2:mem:retry;DB_CLOSE_DELAY=-1");
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    RetryConfiguration retryAdvisor;
+
+    @Autowired
+    BeanFactoryTransactionAttributeSourceAdvisor transactionAdvisor;
+
+    @Autowired
+    UserDataFacade userDataFacade;
+
+    @MockBean
+    UserService userService;
+
+    @MockBean
+    BookService bookService;
+
+    @MockBean
+    UserMapper userMapper;
+
+    @MockBean
+    BookMapper bookMapper;
+
+    @BeforeEach
+    void setUp() {
+        when(userService.getUserById(USER_ID)).thenReturn(prepareUserDto(50));
+        when(userMapper.userUpdateRequestToUserDto(any())).thenReturn(prepareUserDto(51));
+    }
+
+    @Test
+    @DisplayName("Конфликт версий один раз. Вторая попытка читает новую версию и обновляет")
+    void updateOnceConflicted_shouldRetryWithNewVersion() {
+        // given
+        when(userService.getUserVersion(USER_ID)).thenReturn(1L, 2L, 3L);
+        when(userService.updateUser(any(), anyLong()))
+                .thenThrow(new OptimisticLockingFailureException("User with id 1 has version 2, expected 1"))
+                .thenReturn(null);
+
+        // when
+        UserBookResponse response = userDataFacade.updateUserWithBooks(prepareUpdateRequest(), null);
+
+        // then
+        verify(userService).updateUser(any(), eq(1L));
+        verify(userService).updateUser(any(), eq(2L));
+        assertThat(response.getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("Конфликт версий один раз. Каждая попытка идёт в своей новой транзакции")
+    void updateOnceConflicted_shouldRetryInNewTransaction() {
+        // given
+        List<Object> attemptTransactions = new ArrayList<>();
+        when(userService.getUserVersion(USER_ID)).thenAnswer(invocation -> {
+            attemptTransactions.add(TransactionSynchronizationManager.getResource(dataSource));
+            return (long) attemptTransactions.size();
+        });
+        when(userService.updateUser(any(), anyLong()))
+                .thenThrow(new OptimisticLockingFailureException("User with id 1 has version 2, expected 1"))
+                .thenReturn(null);
+
+        // when
+        userDataFacade.updateUserWithBooks(prepareUpdateRequest(), null);
+
+        // then
+        assertThat(attemptTransactions).hasSize(3).doesNotContainNull();
+        assertThat(attemptTransactions.get(0)).isNotSameAs(attemptTransactions.get(1));
+        assertThat(attemptTransactions.get(1)).isSameAs(attemptTransactions.get(2));
+        assertThat(TransactionSynchronizationManager.getResource(dataSource)).isNull();
+        assertThat(retryAdvisor.getOrder()).isEqualTo(RetryConfig.RETRY_ADVISOR_ORDER)
+                .isLessThan(transactionAdvisor.getOrder());
+    }
+
+    @Test
+    @DisplayName("Конфликт версий на каждой попытке. После max-attempts попыток исключение уходит наружу")
+    void updateAlwaysConflicted_shouldGiveUpAfterMaxAttempts() {
+        // given
+        when(userService.getUserVersion(USER_ID)).thenReturn(1L);
+        when(userService.updateUser(any(), anyLong()))
+                .thenThrow(new OptimisticLockingFailureException("User with id 1 has version 2, expected 1"));
+
+        // then
+        assertThatThrownBy(() -> userDataFacade.updateUserWithBooks(prepareUpdateRequest(), null))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(userService, times(3)).updateUser(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Несовпавший If-Match. Без повторов")
+    void updateWithStaleIfMatch_shouldNotRetry() {
+        // given
+        when(userService.getUserVersion(USER_ID)).thenReturn(2L);
+
+        // then
+        assertThatThrownBy(() -> userDataFacade.updateUserWithBooks(prepareUpdateRequest(), 1L))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(userService, times(1)).getUserVersion(USER_ID);
+    }
+
+    private UserDto prepareUserDto(int age) {
+        return UserDto.builder()
+                .id(USER_ID)
+                .fullName("Kirill")
+                .title("reader")
+                .age(age)
+                .build();
+    }
+
+    private UserBookUpdateRequest prepareUpdateRequest() {
+        UserUpdateRequest userRequest = new UserUpdateRequest();
+        userRequest.setId(USER_ID);
+        userRequest.setFullName("Kirill");
+        userRequest.setTitle("reader");
+        userRequest.setAge(51);
+
+        UserBookUpdateRequest request = new UserBookUpdateRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of());
+        return request;
+    }
+}
@@ -0,0 +1,78 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты транзакционных границ {@link UserDataFacade} на JdbcTemplate-сервисах.
+ * Тестовая транзакция отключена, чтобы фасад сам открывал и откатывал свою.
+ */
+@SystemJpaTest
+@Import({UserDataFacade.class, UserServiceImplTemplate.class, BookServiceImplTemplate.class,
+        UserMapperImpl.class, BookMapperImpl.class})
+@DisplayName("Testing user facade transactions.")
+class UserDataFacadeTransactionTest {
+
+    @Autowired
+    UserDataFacade userDataFacade;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Sql("classpath:sql/1_clear_schema.sql")
+    @DisplayName("Создание юзера с книгами. Нарушение not null у книги откатывает insert юзера и других книг")
+    void createUserWithBooks_whenBookWriteFails_thenUserRolledBack() {
+        // given
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(prepareUserRequest());
+        BookRequest bookWithoutTitle = prepareBookRequest();
+        bookWithoutTitle.setTitle(null);
+        request.setBookRequests(List.of(prepareBookRequest(), bookWithoutTitle));
+
+        // when
+        assertThatThrownBy(() -> userDataFacade.createUserWithBooks(request))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        // then
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ulab_edu.person", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ulab_edu.book", Long.class)).isZero();
+    }
+
+    private UserRequest prepareUserRequest() {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Test Test");
+        userRequest.setTitle("reader");
+        userRequest.setAge(30);
+        return userRequest;
+    }
+
+    private BookRequest prepareBookRequest() {
+        BookRequest bookRequest = new BookRequest();
+        bookRequest.setTitle("test");
+        bookRequest.setAuthor("Test Author");
+        bookRequest.setPageCount(1000);
+        return bookRequest;
+    }
+}
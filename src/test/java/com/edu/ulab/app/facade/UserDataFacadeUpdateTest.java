@@ -0,0 +1,218 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.request.UserUpdateRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты обновления книг по разнице в {@link UserDataFacade#updateUserWithBooks(UserBookUpdateRequest, Long)}.
+ */
+@UnitTest
+@DisplayName("Testing diff-based user update.")
+class UserDataFacadeUpdateTest {
+    private static final long USER_ID = 1L;
+    private static final long VERSION = 5L;
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    BookService bookService;
+
+    UserDataFacade userDataFacade;
+
+    @BeforeEach
+    void setUp() {
+        userDataFacade = new UserDataFacade(userService, bookService, new UserMapperImpl(), new BookMapperImpl(),
+                Optional.empty());
+        when(userService.getUserVersion(USER_ID)).thenReturn(VERSION);
+        lenient().when(userService.getUserById(USER_ID)).thenReturn(UserDto.builder()
+                .id(USER_ID)
+                .fullName("Kirill")
+                .title("reader")
+                .age(50)
+                .build());
+        lenient().when(bookService.findBooksByUserId(USER_ID)).thenReturn(List.of(
+                book(10L, "first"),
+                book(11L, "second")));
+    }
+
+    @Test
+    @DisplayName("Тот же запрос. Ничего не должно записываться")
+    void updateWithSamePayload_shouldNotWrite() {
+        // when
+        UserBookResponse response = userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill", "first", "second"), null);
+
+        // then
+        assertThat(response.getBooksIdList()).containsExactly(10L, 11L);
+        verify(userService, never()).updateUser(any(), anyLong());
+        verify(bookService, never()).deleteBooksByIds(anyLong(), anyCollection());
+        verify(bookService, never()).updateBooks(anyList());
+        verify(bookService, never()).createBooks(anyList());
+    }
+
+    @Test
+    @DisplayName("Изменён юзер и порядок книг. Обновляется только юзер, книги сохраняют id")
+    void updateUserOnly_shouldKeepBookIds() {
+        // when
+        UserBookResponse response = userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill K", "second", "first"), null);
+
+        // then
+        assertThat(response.getBooksIdList()).containsExactly(11L, 10L);
+        verify(userService).updateUser(any(), eq(VERSION));
+        verify(bookService, never()).updateBooks(anyList());
+        verify(bookService, never()).createBooks(anyList());
+    }
+
+    @Test
+    @DisplayName("Изменена одна книга. Должна обновиться на месте со старым id")
+    void updateOneBook_shouldUpdateInPlace() {
+        // when
+        UserBookResponse response = userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill", "first", "changed"), null);
+
+        // then
+        assertThat(response.getBooksIdList()).containsExactly(10L, 11L);
+        verify(bookService).updateBooks(List.of(book(11L, "changed")));
+        verify(bookService, never()).deleteBooksByIds(anyLong(), anyCollection());
+        verify(bookService, never()).createBooks(anyList());
+    }
+
+    @Test
+    @DisplayName("Книг стало больше. Новая книга вставляется, старые не трогаются")
+    void addBook_shouldInsertOnlyNew() {
+        // given
+        when(bookService.createBooks(anyList())).thenReturn(List.of(book(12L, "third")));
+
+        // when
+        UserBookResponse response = userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill", "first", "second", "third"), null);
+
+        // then
+        assertThat(response.getBooksIdList()).containsExactly(10L, 11L, 12L);
+        verify(bookService).createBooks(argThat(books -> books.size() == 1
+                && books.get(0).getTitle().equals("third")));
+        verify(bookService, never()).updateBooks(anyList());
+    }
+
+    @Test
+    @DisplayName("Книг стало меньше. Лишняя книга удаляется одним запросом")
+    void removeBook_shouldDeleteOnlyRemoved() {
+        // when
+        UserBookResponse response = userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill", "second"), null);
+
+        // then
+        assertThat(response.getBooksIdList()).containsExactly(11L);
+        verify(bookService).deleteBooksByIds(USER_ID, List.of(10L));
+        verify(bookService, never()).updateBooks(anyList());
+        verify(bookService, never()).createBooks(anyList());
+    }
+
+    @Test
+    @DisplayName("If-Match со старой версией. PreconditionFailedException до чтения книг и без записи")
+    void updateWithStaleIfMatch_shouldFailWithoutWrites() {
+        // then
+        assertThatThrownBy(() -> userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill K", "first"), VERSION - 1))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(bookService, never()).findBooksByUserId(anyLong());
+        verify(userService, never()).updateUser(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Юзера изменили между чтением и записью. Без If-Match конфликт уходит на повтор, с If-Match - 412")
+    void updateConcurrentlyModified_shouldNotTouchBooks() {
+        // given
+        when(userService.updateUser(any(), anyLong()))
+                .thenThrow(new OptimisticLockingFailureException("User with id 1 has version 6, expected 5"));
+
+        // then
+        assertThatThrownBy(() -> userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill", "second"), null))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThatThrownBy(() -> userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill", "second"), VERSION))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(bookService, never()).deleteBooksByIds(anyLong(), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Изменена книга при совпавшем If-Match. Версия юзера проверяется и возвращается новая")
+    void updateBookWithIfMatch_shouldReturnNewVersion() {
+        // given
+        when(userService.getUserVersion(USER_ID)).thenReturn(VERSION, VERSION + 2);
+
+        // when
+        UserBookResponse response = userDataFacade.updateUserWithBooks(
+                prepareUpdateRequest("Kirill", "first", "changed"), VERSION);
+
+        // then
+        verify(userService).updateUser(any(), eq(VERSION));
+        assertThat(response.getVersion()).isEqualTo(VERSION + 2);
+    }
+
+    private static BookDto book(Long id, String title) {
+        return BookDto.builder()
+                .id(id)
+                .userId(USER_ID)
+                .title(title)
+                .author("author")
+                .pageCount(100)
+                .build();
+    }
+
+    private static UserBookUpdateRequest prepareUpdateRequest(String fullName, String... bookTitles) {
+        UserUpdateRequest userRequest = new UserUpdateRequest();
+        userRequest.setId(USER_ID);
+        userRequest.setFullName(fullName);
+        userRequest.setTitle("reader");
+        userRequest.setAge(50);
+
+        UserBookUpdateRequest request = new UserBookUpdateRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(Stream.of(bookTitles)
+                .map(title -> {
+                    BookRequest bookRequest = new BookRequest();
+                    bookRequest.setTitle(title);
+                    bookRequest.setAuthor("author");
+                    bookRequest.setPageCount(100);
+                    return bookRequest;
+                })
+                .toList());
+        return request;
+    }
+}
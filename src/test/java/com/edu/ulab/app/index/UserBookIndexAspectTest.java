@@ -0,0 +1,104 @@
+package com.edu.ulab.app.index;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты синхронизации индекса {@link UserBookIndexAspect}.
+ */
+@UnitTest
+class UserBookIndexAspectTest {
+
+    UserBookIndex userBookIndex = new UserBookIndex();
+
+    @Mock
+    BookService bookService;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Создать и удалить книги без транзакции. Индекс меняется сразу")
+    void createAndDeleteBooks_thenIndexUpdated() {
+        // given
+        when(bookService.createBooks(anyList())).thenReturn(List.of(book(10L, 1L), book(11L, 1L), book(20L, 2L)));
+        BookService proxy = proxy();
+
+        // when
+        proxy.createBooks(List.of());
+        proxy.deleteBooksByIds(1L, List.of(10L));
+
+        // then
+        assertThat(userBookIndex.findBookIds(1L)).containsExactly(11L);
+        assertThat(userBookIndex.findBookIds(2L)).containsExactly(20L);
+    }
+
+    @Test
+    @DisplayName("Создать книгу в транзакции. Индекс меняется только после коммита")
+    void createBookInTransaction_thenAppliedAfterCommit() {
+        // given
+        when(bookService.createBook(null)).thenReturn(book(10L, 1L));
+        BookService proxy = proxy();
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        proxy.createBook(null);
+
+        // then
+        assertThat(userBookIndex.findBookIds(1L)).isNull();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(userBookIndex.findBookIds(1L)).containsExactly(10L);
+    }
+
+    @Test
+    @DisplayName("Обновить книги и удалить книгу по id без транзакции. Версия юзера растёт один раз на вызов")
+    void updateAndDeleteBooks_thenVersionIncremented() {
+        // given
+        userBookIndex.putUser(1L, 3L, 10L, 11L);
+        BookService proxy = proxy();
+
+        // when
+        proxy.updateBooks(List.of(book(10L, 1L), book(11L, 1L)));
+        proxy.updateBook(book(10L, null));
+        proxy.deleteBookById(11L);
+
+        // then
+        assertThat(userBookIndex.findVersion(1L)).hasValue(6L);
+        assertThat(userBookIndex.findBookIds(1L)).containsExactly(10L);
+    }
+
+    private BookService proxy() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(bookService);
+        factory.addInterface(BookService.class);
+        factory.addAspect(new UserBookIndexAspect(userBookIndex));
+        return factory.getProxy();
+    }
+
+    private static BookDto book(Long id, Long userId) {
+        return BookDto.builder()
+                .id(id)
+                .userId(userId)
+                .title("title")
+                .author("author")
+                .pageCount(100)
+                .build();
+    }
+}
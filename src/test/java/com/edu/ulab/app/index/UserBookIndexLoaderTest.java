@@ -0,0 +1,94 @@
+package com.edu.ulab.app.index;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.service.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Тесты загрузки и сохранения {@link UserBookIndex} в {@link UserBookIndexLoader}.
+ */
+@UnitTest
+@DisplayName("Testing user book index loader.")
+class UserBookIndexLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    UserService userService;
+
+    UserBookIndex userBookIndex = new UserBookIndex();
+
+    @Test
+    @DisplayName("Остановка с недоступным путём снапшота. Ошибка логируется, остановка не прерывается")
+    void stop_whenSnapshotNotWritable_thenNoException() throws IOException {
+        // given
+        Path notDirectory = Files.createFile(tempDir.resolve("not-a-directory"));
+        UserBookIndexLoader loader = new UserBookIndexLoader(userBookIndex, userService,
+                notDirectory.resolve("user-book-index.snapshot"));
+        userBookIndex.addBooks(1L, 10L);
+
+        // when
+        assertThatCode(loader::stop).doesNotThrowAnyException();
+
+        // then
+        assertThat(loader.isRunning()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Остановка и старт. Индекс восстанавливается из снапшота без обращения к базе")
+    void stopThenStart_thenLoadedFromSnapshot() {
+        // given
+        Path snapshotPath = tempDir.resolve("user-book-index.snapshot");
+        userBookIndex.putUser(1L, 3L, 10L, 20L);
+        new UserBookIndexLoader(userBookIndex, userService, snapshotPath).stop();
+        UserBookIndex restoredIndex = new UserBookIndex();
+
+        // when
+        new UserBookIndexLoader(restoredIndex, userService, snapshotPath).start();
+
+        // then
+        assertThat(restoredIndex.isReady()).isTrue();
+        assertThat(restoredIndex.findBookIds(1L)).containsExactly(10L, 20L);
+        assertThat(restoredIndex.findVersion(1L)).hasValue(3L);
+        assertThat(snapshotPath).doesNotExist();
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    @DisplayName("Старт без снапшота. Книги и версии юзеров берутся из базы")
+    void startWithoutSnapshot_thenRebuiltFromDatabase() {
+        // given
+        doAnswer(invocation -> {
+            Consumer<UserBookIdsDto> consumer = invocation.getArgument(0);
+            consumer.accept(new UserBookIdsDto(1L, List.of(10L, 20L), 4L));
+            consumer.accept(new UserBookIdsDto(2L, List.of(), 0L));
+            return null;
+        }).when(userService).forEachUserWithBookIds(any());
+
+        // when
+        new UserBookIndexLoader(userBookIndex, userService, tempDir.resolve("user-book-index.snapshot")).start();
+
+        // then
+        assertThat(userBookIndex.findBookIds(1L)).containsExactly(10L, 20L);
+        assertThat(userBookIndex.findVersion(1L)).hasValue(4L);
+        assertThat(userBookIndex.findBookIds(2L)).isEmpty();
+        assertThat(userBookIndex.findVersion(2L)).hasValue(0L);
+    }
+}
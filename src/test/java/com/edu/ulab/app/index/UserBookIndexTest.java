@@ -0,0 +1,223 @@
+package com.edu.ulab.app.index;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты индекса {@link UserBookIndex}.
+ */
+@DisplayName("Testing user book index.")
+class UserBookIndexTest {
+    private static final int USERS_PER_MILLION_BOOKS = 100_000;
+    private static final int BOOKS_PER_USER = 10;
+
+    @TempDir
+    Path tempDir;
+
+    UserBookIndex userBookIndex = new UserBookIndex();
+
+    @Test
+    @DisplayName("Добавить книги юзеру. Id отсортированы и не дублируются")
+    void addBooks_thenSortedDistinct() {
+        // when
+        userBookIndex.addBooks(1L, 30L, 10L);
+        userBookIndex.addBooks(1L, 20L, 10L);
+
+        // then
+        assertThat(userBookIndex.findBookIds(1L)).containsExactly(10L, 20L, 30L);
+        assertThat(userBookIndex.bookCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Юзер без книг и неизвестный юзер. Пустой массив и null")
+    void findBookIds_userWithoutBooksAndUnknownUser() {
+        // given
+        userBookIndex.putUser(1L);
+
+        // then
+        assertThat(userBookIndex.findBookIds(1L)).isEmpty();
+        assertThat(userBookIndex.findBookIds(2L)).isNull();
+    }
+
+    @Test
+    @DisplayName("Удалить книги по id, по юзеру и без юзера. Остаются только неудалённые")
+    void removeBooks_thenOnlyRemainingLeft() {
+        // given
+        userBookIndex.addBooks(1L, 10L, 11L, 12L, 13L);
+        userBookIndex.addBooks(2L, 20L, 21L);
+
+        // when
+        userBookIndex.removeBooks(1L, 10L, 12L, 20L);
+        userBookIndex.removeBook(13L);
+        userBookIndex.removeAllBooks(2L);
+
+        // then
+        assertThat(userBookIndex.findBookIds(1L)).containsExactly(11L);
+        assertThat(userBookIndex.findBookIds(2L)).isEmpty();
+        assertThat(userBookIndex.bookCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Записи книг и юзера. Версия растёт только при изменениях, как person.version")
+    void writes_thenVersionIncrementedOnChange() {
+        // given
+        userBookIndex.putUser(1L);
+        userBookIndex.putUser(2L, 7L, 20L);
+
+        // when
+        userBookIndex.addBooks(1L, 10L, 11L);
+        userBookIndex.removeBooks(1L, 99L);
+        userBookIndex.removeBooks(1L, 10L);
+        userBookIndex.removeBook(11L);
+        userBookIndex.removeAllBooks(1L);
+        userBookIndex.incrementVersions(1L, 1L, 2L, 3L);
+
+        // then
+        assertThat(userBookIndex.findVersion(1L)).hasValue(4L);
+        assertThat(userBookIndex.findVersion(2L)).hasValue(8L);
+        assertThat(userBookIndex.findVersion(3L)).isEmpty();
+        assertThat(userBookIndex.findUserId(20L)).hasValue(2L);
+        assertThat(userBookIndex.findUserId(10L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Версия и книги юзера одним чтением. Совпадают с отдельными чтениями, неизвестный юзер null")
+    void findUserBooks_thenVersionWithBooks() {
+        // given
+        userBookIndex.putUser(1L, 3L, 11L, 10L);
+
+        // when
+        UserBookIndex.UserBooks userBooks = userBookIndex.findUserBooks(1L);
+
+        // then
+        assertThat(userBooks.version()).isEqualTo(3L);
+        assertThat(userBooks.bookIds()).containsExactly(10L, 11L);
+        assertThat(userBookIndex.findUserBooks(2L)).isNull();
+    }
+
+    @Test
+    @DisplayName("Удалить половину юзеров из заполненной таблицы. Остальные находятся после сдвигов")
+    void removeUsers_thenRemainingFound() {
+        // given
+        for (long userId = 1; userId <= 10_000; userId++) {
+            userBookIndex.putUser(userId, userId, userId * 10);
+        }
+
+        // when
+        for (long userId = 1; userId <= 10_000; userId += 2) {
+            userBookIndex.removeUser(userId);
+        }
+
+        // then
+        assertThat(userBookIndex.userCount()).isEqualTo(5_000);
+        assertThat(userBookIndex.bookCount()).isEqualTo(5_000);
+        for (long userId = 1; userId <= 10_000; userId++) {
+            if (userId % 2 == 0) {
+                assertThat(userBookIndex.findBookIds(userId)).containsExactly(userId * 10);
+                assertThat(userBookIndex.findVersion(userId)).hasValue(userId);
+            } else {
+                assertThat(userBookIndex.findBookIds(userId)).isNull();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Записать и прочитать снапшот. Содержимое совпадает")
+    void writeAndLoadSnapshot_thenSameContent() throws IOException {
+        // given
+        userBookIndex.addBooks(1L, 10L, 11L);
+        userBookIndex.putUser(2L);
+        userBookIndex.putUser(3L, 5L, 30L);
+        Path snapshot = tempDir.resolve("index.snapshot");
+
+        // when
+        userBookIndex.writeSnapshot(snapshot);
+        UserBookIndex loadedIndex = new UserBookIndex();
+        loadedIndex.loadSnapshot(snapshot);
+
+        // then
+        assertThat(loadedIndex.userCount()).isEqualTo(3);
+        assertThat(loadedIndex.bookCount()).isEqualTo(3);
+        assertThat(loadedIndex.findBookIds(1L)).containsExactly(10L, 11L);
+        assertThat(loadedIndex.findBookIds(2L)).isEmpty();
+        assertThat(loadedIndex.findBookIds(3L)).containsExactly(30L);
+        assertThat(loadedIndex.findVersion(1L)).hasValue(1L);
+        assertThat(loadedIndex.findVersion(2L)).hasValue(0L);
+        assertThat(loadedIndex.findVersion(3L)).hasValue(5L);
+        assertThat(Files.exists(tempDir.resolve("index.snapshot.tmp"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Прочитать обрезанный снапшот. IOException, индекс пуст")
+    void loadTruncatedSnapshot_thenIOException() throws IOException {
+        // given
+        userBookIndex.addBooks(1L, 10L, 11L);
+        Path snapshot = tempDir.resolve("index.snapshot");
+        userBookIndex.writeSnapshot(snapshot);
+        byte[] content = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(content, content.length - Long.BYTES));
+        UserBookIndex loadedIndex = new UserBookIndex();
+
+        // then
+        assertThatThrownBy(() -> loadedIndex.loadSnapshot(snapshot)).isInstanceOf(IOException.class);
+        assertThat(loadedIndex.userCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Миллион книг у 100 тысяч юзеров. Индекс около 14,8 МБ, снапшот около 10 МБ")
+    void millionBooks_thenDocumentedSize() throws IOException {
+        // given
+        for (long userId = 1; userId <= USERS_PER_MILLION_BOOKS; userId++) {
+            long firstBookId = userId * BOOKS_PER_USER;
+            userBookIndex.addBooks(userId, LongStream.range(firstBookId, firstBookId + BOOKS_PER_USER).toArray());
+        }
+        Path snapshot = tempDir.resolve("index.snapshot");
+
+        // when
+        userBookIndex.writeSnapshot(snapshot);
+
+        // then
+        assertThat(userBookIndex.bookCount()).isEqualTo(1_000_000);
+        assertThat(userBookIndex.estimatedSizeInBytes())
+                .isGreaterThan(1_000_000L * Long.BYTES)
+                .isLessThan(15_000_000L);
+        assertThat(Files.size(snapshot)).isEqualTo(UserBookIndex.SNAPSHOT_HEADER_BYTES
+                + (long) UserBookIndex.SNAPSHOT_USER_BYTES * USERS_PER_MILLION_BOOKS
+                + 1_000_000L * Long.BYTES);
+    }
+
+    @Test
+    @DisplayName("Прочитать снапшот миллиона книг. Выделенная куча не больше оценки индекса")
+    void loadMillionBooksSnapshot_thenAllocationMatchesEstimate() throws IOException {
+        // given
+        for (long userId = 1; userId <= USERS_PER_MILLION_BOOKS; userId++) {
+            long firstBookId = userId * BOOKS_PER_USER;
+            userBookIndex.addBooks(userId, LongStream.range(firstBookId, firstBookId + BOOKS_PER_USER).toArray());
+        }
+        Path snapshot = tempDir.resolve("index.snapshot");
+        userBookIndex.writeSnapshot(snapshot);
+        UserBookIndex loadedIndex = new UserBookIndex();
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+
+        // when
+        loadedIndex.loadSnapshot(snapshot);
+
+        // then
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        assertThat(allocated).isBetween(loadedIndex.estimatedSizeInBytes(),
+                loadedIndex.estimatedSizeInBytes() + 1_000_000L);
+    }
+}
@@ -0,0 +1,143 @@
+package com.edu.ulab.app.metrics;
+
+import com.edu.ulab.app.config.MetricsConfig;
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты метрик сервисов {@link ServiceMetricsAspect}.
+ */
+@UnitTest
+class ServiceMetricsAspectTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    BookService bookService;
+
+    @Mock
+    UserService userService;
+
+    @Test
+    @DisplayName("Чтение книг. Таймер метода и счётчик прочитанных строк")
+    void findBookIds_thenTimerAndReadRows() {
+        // given
+        when(bookService.findBookIdsByUserId(1L)).thenReturn(List.of(2L, 3L));
+        BookService proxy = proxy(bookService, BookService.class);
+
+        // when
+        proxy.findBookIdsByUserId(1L);
+
+        // then
+        assertThat(meterRegistry.get(MetricsConfig.SERVICE_TIMER)
+                .tag("method", "findBookIdsByUserId")
+                .timer()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get(MetricsConfig.SERVICE_ROWS)
+                .tag("operation", "read")
+                .counter()
+                .count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Удаление книг юзера. Число удалённых идёт в счётчик записанных строк")
+    void deleteAllByUserId_thenWrittenRows() {
+        // given
+        when(bookService.deleteAllByUserId(1L)).thenReturn(3);
+        BookService proxy = proxy(bookService, BookService.class);
+
+        // when
+        proxy.deleteAllByUserId(1L);
+
+        // then
+        assertThat(meterRegistry.get(MetricsConfig.SERVICE_ROWS)
+                .tag("operation", "written")
+                .counter()
+                .count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Пересчёт счётчиков книг. Исправленные юзеры идут в счётчик записанных строк")
+    void rebuildStatsSummary_thenWrittenRows() {
+        // given
+        when(bookService.rebuildStatsSummary()).thenReturn(4);
+        BookService proxy = proxy(bookService, BookService.class);
+
+        // when
+        proxy.rebuildStatsSummary();
+
+        // then
+        assertThat(meterRegistry.get(MetricsConfig.SERVICE_ROWS)
+                .tag("operation", "written")
+                .counter()
+                .count()).isEqualTo(4);
+        assertThat(meterRegistry.find(MetricsConfig.SERVICE_ROWS).tag("operation", "read").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("Чтение юзера с книгами и версии. Строка юзера, строки книг и одна строка версии")
+    void getUserWithBookIdsAndVersion_thenReadRows() {
+        // given
+        when(userService.getUserWithBookIds(1L)).thenReturn(new UserBookIdsDto(1L, List.of(2L, 3L), 0L));
+        when(userService.getUserVersion(1L)).thenReturn(7L);
+        UserService proxy = proxy(userService, UserService.class);
+
+        // when
+        proxy.getUserWithBookIds(1L);
+        proxy.getUserVersion(1L);
+
+        // then
+        assertThat(meterRegistry.get(MetricsConfig.SERVICE_ROWS)
+                .tag("operation", "read")
+                .counter()
+                .count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Выгрузка юзеров. Строки считаются по вызовам consumer")
+    @SuppressWarnings("unchecked")
+    void forEachUserWithBookIds_thenStreamedRowsCounted() {
+        // given
+        doAnswer(invocation -> {
+            Consumer<UserBookIdsDto> consumer = invocation.getArgument(0);
+            consumer.accept(new UserBookIdsDto(1L, List.of(), 0L));
+            consumer.accept(new UserBookIdsDto(2L, List.of(), 0L));
+            return null;
+        }).when(userService).forEachUserWithBookIds(any(Consumer.class));
+        UserService proxy = proxy(userService, UserService.class);
+        List<UserBookIdsDto> exported = new ArrayList<>();
+
+        // when
+        proxy.forEachUserWithBookIds(exported::add);
+
+        // then
+        assertThat(exported).hasSize(2);
+        assertThat(meterRegistry.get(MetricsConfig.SERVICE_ROWS)
+                .tag("operation", "read")
+                .counter()
+                .count()).isEqualTo(2);
+    }
+
+    private <T> T proxy(T target, Class<T> type) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addInterface(type);
+        factory.addAspect(new ServiceMetricsAspect(meterRegistry));
+        return factory.getProxy();
+    }
+}
@@ -4,6 +4,7 @@ import com.edu.ulab.app.config.SystemJpaTest;
 import com.edu.ulab.app.entity.BookEntity;
 import com.edu.ulab.app.entity.UserEntity;
 import com.vladmihalcea.sql.SQLStatementCountValidator;
+import net.ttddyy.dsproxy.QueryCountHolder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,6 +14,7 @@ import org.springframework.test.context.jdbc.Sql;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static com.vladmihalcea.sql.SQLStatementCountValidator.assertDeleteCount;
 import static com.vladmihalcea.sql.SQLStatementCountValidator.assertInsertCount;
@@ -25,6 +27,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 @SystemJpaTest
 class BookRepositoryTest {
+    private static final long MISSING_USER_ID = 999_999L;
 
     @Autowired
     BookRepository bookRepository;
@@ -36,7 +39,7 @@ class BookRepositoryTest {
         SQLStatementCountValidator.reset();
     }
 
-    @DisplayName("Сохранить книгу. Число select должно равняться 1")
+    @DisplayName("Сохранить книгу с новым юзером. Один select на merge юзера с неизвестным id")
     @Test
     @Rollback
     @Sql({"classpath:sql/1_clear_schema.sql",
@@ -45,12 +48,16 @@ class BookRepositoryTest {
     })
     void saveBook_thenAssertDmlCount() {
         // given
-        UserEntity user = userRepository.save(prepareValidUserEntity());
+        warmUpIdPools();
+        UserEntity detachedUser = prepareValidUserEntity();
+        detachedUser.setId(MISSING_USER_ID);
+        UserEntity user = userRepository.save(detachedUser);
         BookEntity book = prepareValidBookEntity();
         book.setUserEntity(user);
 
         // when
         BookEntity result = bookRepository.save(book);
+        bookRepository.flush();
 
         // then
         assertThat(result.getPageCount()).isEqualTo(1000);
@@ -61,6 +68,36 @@ class BookRepositoryTest {
         assertDeleteCount(0);
     }
 
+    @DisplayName("Сохранить 100 книг. Insert должны уйти пачками по batch_size")
+    @Test
+    @Rollback
+    @Sql("classpath:sql/1_clear_schema.sql")
+    void saveAllBooks_thenInsertsAreBatched() {
+        // given
+        UserEntity user = prepareValidUserEntity();
+        user.setId(null);
+        UserEntity savedUser = userRepository.save(user);
+        List<BookEntity> books = IntStream.range(0, 100)
+                .mapToObj(i -> {
+                    BookEntity book = prepareValidBookEntity();
+                    book.setUserEntity(savedUser);
+                    return book;
+                })
+                .toList();
+
+        // when
+        bookRepository.saveAll(books);
+        bookRepository.flush();
+
+        // then
+        // один insert юзера и два batch по 50 книг
+        assertInsertCount(3);
+        // id выдаются пулами по 50, поэтому nextval вызывается единицы раз, а не 100
+        assertThat(QueryCountHolder.getGrandTotal().getSelect()).isLessThanOrEqualTo(5L);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
     @DisplayName("Найти книгу. Число select должно равняться 1")
     @Test
     @Rollback
@@ -97,6 +134,61 @@ class BookRepositoryTest {
         assertThat(books).hasSize(2);
     }
 
+    @DisplayName("Найти книги юзера. Один select по индексу person_id")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findAllBooksByUserId_thenAssertDmlCount() {
+        // when
+        List<BookEntity> books = bookRepository.findAllByUserEntityId(1001L);
+
+        // then
+        assertThat(books).hasSize(2);
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Найти id книг юзера. Один select по индексу person_id")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findBookIdsByUserId_thenAssertDmlCount() {
+        // when
+        List<Long> bookIds = bookRepository.findIdsByUserId(1001L);
+
+        // then
+        assertThat(bookIds).containsExactlyInAnyOrder(2002L, 3003L);
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Найти id книг страницы юзеров. Один select на всю страницу")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findBookIdsByUserIds_thenAssertDmlCount() {
+        // when
+        List<UserBookIdView> bookIds = bookRepository.findIdsByUserIds(List.of(1001L, 1002L));
+
+        // then
+        assertThat(bookIds).extracting(UserBookIdView::getBookId).containsExactly(2002L, 3003L);
+        assertThat(bookIds).extracting(UserBookIdView::getUserId).containsOnly(1001L);
+        assertSelectCount(1);
+    }
+
     @DisplayName("Обновить книгу. Должно обновиться")
     @Test
     @Rollback
@@ -139,6 +231,87 @@ class BookRepositoryTest {
         assertThat(foundBook).isEmpty();
     }
 
+    @DisplayName("Удалить все книги юзера. Один delete на все книги")
+    @Test
+    @Rollback
+    @Sql({
+            "classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void deleteAllBooksByUserId_thenAssertDmlCount() {
+        // when
+        int deleted = bookRepository.deleteAllByUserId(1001L);
+
+        // then
+        assertThat(deleted).isEqualTo(2);
+        assertSelectCount(0);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(1);
+    }
+
+    @DisplayName("Обновить книгу запросом. Один update без select")
+    @Test
+    @Rollback
+    @Sql({
+            "classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void updateBookById_thenAssertDmlCount() {
+        // when
+        int updated = bookRepository.updateBookById(2002L, "test", "Test Author", 1000);
+        int missing = bookRepository.updateBookById(-1L, "test", "Test Author", 1000);
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(missing).isZero();
+        assertSelectCount(0);
+        assertInsertCount(0);
+        assertUpdateCount(2);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Удалить книгу запросом. Один delete без select")
+    @Test
+    @Rollback
+    @Sql({
+            "classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void deleteBookById_thenAssertDmlCount() {
+        // when
+        int deleted = bookRepository.deleteBookById(2002L);
+        int missing = bookRepository.deleteBookById(2002L);
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(missing).isZero();
+        assertSelectCount(0);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(2);
+    }
+
+    /**
+     * Выбирает пулы id из person_id_seq и book_id_seq заранее, чтобы nextval не попадал в подсчёт запросов.
+     * На свежей последовательности первый nextval отдаёт начальное значение, а пул появляется со вторым,
+     * поэтому из каждой берётся по два id.
+     */
+    private void warmUpIdPools() {
+        for (int i = 0; i < 2; i++) {
+            UserEntity user = prepareValidUserEntity();
+            user.setId(null);
+            UserEntity savedUser = userRepository.save(user);
+            BookEntity book = prepareValidBookEntity();
+            book.setUserEntity(savedUser);
+            bookRepository.saveAndFlush(book);
+        }
+        SQLStatementCountValidator.reset();
+    }
+
     private BookEntity prepareValidBookEntity() {
         BookEntity book = new BookEntity();
         book.setTitle("test");
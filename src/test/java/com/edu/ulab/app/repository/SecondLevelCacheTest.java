@@ -0,0 +1,180 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.HibernateCacheConfig;
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.entity.BookEntity;
+import com.edu.ulab.app.entity.UserEntity;
+import com.vladmihalcea.sql.SQLStatementCountValidator;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static com.vladmihalcea.sql.SQLStatementCountValidator.assertSelectCount;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты second-level cache и кэша запросов для {@link BookEntity} и коллекции книг {@link UserEntity}.
+ * Запись READ_WRITE-региона видна только транзакциям, начатым после неё, поэтому тесты идут без общей
+ * транзакции: каждое чтение выполняется в своей, а данные удаляются после теста.
+ */
+@SystemJpaTest
+@TestPropertySource(properties = "hibernate-cache.statistics-enabled=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql({"classpath:sql/1_clear_schema.sql",
+        "classpath:sql/2_insert_person_data.sql",
+        "classpath:sql/3_insert_book_data.sql"
+})
+@Sql(scripts = "classpath:sql/1_clear_schema.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class SecondLevelCacheTest {
+    private static final long USER_ID = 1001L;
+    private static final long BOOK_ID = 2002L;
+
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BookRepository bookRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        SQLStatementCountValidator.reset();
+    }
+
+    @DisplayName("Повторно найти юзера по id. Юзер не кэшируется, select выполняется снова")
+    @Test
+    void findUserByIdTwice_thenUserNotCached() {
+        // given
+        userRepository.findById(USER_ID);
+        SQLStatementCountValidator.reset();
+
+        // when
+        UserEntity foundUser = userRepository.findById(USER_ID).orElseThrow();
+
+        // then
+        assertThat(foundUser.getFullName()).isEqualTo("default user");
+        assertSelectCount(1);
+    }
+
+    @DisplayName("Повторно прочитать книги юзера через коллекцию. Выполняется только select юзера")
+    @Test
+    void readBookSetTwice_thenOnlyUserSelect() {
+        // given
+        findBookIdsFromBookSet();
+        SQLStatementCountValidator.reset();
+
+        // when
+        List<Long> bookIds = findBookIdsFromBookSet();
+
+        // then
+        assertThat(bookIds).containsExactly(2002L, 3003L);
+        assertSelectCount(1);
+        assertThat(regionStatistics(HibernateCacheConfig.USER_BOOK_SET_REGION).getHitCount()).isPositive();
+    }
+
+    @DisplayName("Увеличить версию юзера bulk-update запросом. Коллекция книг остаётся в кэше")
+    @Test
+    void incrementVersions_thenBookSetRegionKept() {
+        // given
+        findBookIdsFromBookSet();
+
+        // when
+        userRepository.incrementVersions(List.of(USER_ID));
+        SQLStatementCountValidator.reset();
+        List<Long> bookIds = findBookIdsFromBookSet();
+
+        // then
+        assertThat(bookIds).containsExactly(2002L, 3003L);
+        assertSelectCount(1);
+    }
+
+    @DisplayName("Повторно найти книги юзера. Запрос берётся из кэша запросов")
+    @Test
+    void findBooksByUserIdTwice_thenNoSelect() {
+        // given
+        bookRepository.findAllByUserEntityId(USER_ID);
+        bookRepository.findIdsByUserId(USER_ID);
+        SQLStatementCountValidator.reset();
+
+        // when
+        List<BookEntity> foundBooks = bookRepository.findAllByUserEntityId(USER_ID);
+        List<Long> foundIds = bookRepository.findIdsByUserId(USER_ID);
+
+        // then
+        assertThat(foundBooks).extracting(BookEntity::getTitle)
+                .containsExactlyInAnyOrder("default book", "more default book");
+        assertThat(foundIds).containsExactlyInAnyOrder(2002L, 3003L);
+        assertSelectCount(0);
+    }
+
+    @DisplayName("Сохранить книгу. Закэшированный запрос id книг юзера должен выполниться заново")
+    @Test
+    void saveBook_thenCachedQueryInvalidated() {
+        // given
+        bookRepository.findIdsByUserId(USER_ID);
+        BookEntity book = new BookEntity();
+        book.setTitle("test");
+        book.setAuthor("author");
+        book.setPageCount(100);
+        book.setUserEntity(userRepository.findById(USER_ID).orElseThrow());
+        BookEntity savedBook = bookRepository.save(book);
+        SQLStatementCountValidator.reset();
+
+        // when
+        List<Long> foundIds = bookRepository.findIdsByUserId(USER_ID);
+
+        // then
+        assertThat(foundIds).containsExactlyInAnyOrder(2002L, 3003L, savedBook.getId());
+        assertSelectCount(1);
+    }
+
+    @DisplayName("Пересчитать статистику юзера нативным запросом. Регион книг не сбрасывается")
+    @Test
+    void recountBookStats_thenBookRegionKept() {
+        // given
+        bookRepository.findById(BOOK_ID);
+        userRepository.findById(USER_ID);
+
+        // when
+        userRepository.recountBookStats(USER_ID);
+        SQLStatementCountValidator.reset();
+        bookRepository.findById(BOOK_ID);
+        UserEntity foundUser = userRepository.findById(USER_ID).orElseThrow();
+
+        // then
+        assertThat(foundUser.getBookCount()).isEqualTo(2);
+        assertSelectCount(1);
+    }
+
+    private List<Long> findBookIdsFromBookSet() {
+        return transactionTemplate.execute(status -> userRepository.findById(USER_ID).orElseThrow()
+                .getBookSet()
+                .stream()
+                .map(BookEntity::getId)
+                .sorted()
+                .toList());
+    }
+
+    private CacheRegionStatistics regionStatistics(String regionName) {
+        return entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics()
+                .getDomainDataRegionStatistics(regionName);
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
@@ -24,6 +25,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 @SystemJpaTest
 class UserRepositoryTest {
+    private static final long MISSING_USER_ID = 999_999L;
 
     @Autowired
     UserRepository userRepository;
@@ -39,10 +41,13 @@ class UserRepositoryTest {
     @Sql("classpath:sql/1_clear_schema.sql")
     void saveUser_thenAssertDmlCount() {
         // given
+        warmUpIdPool();
         UserEntity user = prepareValidUserEntity();
+        user.setId(MISSING_USER_ID);
 
         // when
         UserEntity result = userRepository.save(user);
+        userRepository.flush();
 
         // then
         assertThat(result.getAge()).isEqualTo(111);
@@ -89,6 +94,27 @@ class UserRepositoryTest {
         assertThat(users).hasSize(1);
     }
 
+    @DisplayName("Страница юзеров после id. Один select с limit")
+    @Test
+    @Rollback
+    @Sql({
+            "classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql"
+    })
+    void findUsersAfterId_thenAssertDmlCount() {
+        // when
+        List<UserEntity> firstPage = userRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 10));
+        List<UserEntity> nextPage = userRepository.findByIdGreaterThanOrderByIdAsc(1001L, PageRequest.of(0, 10));
+
+        // then
+        assertThat(firstPage).extracting(UserEntity::getId).containsExactly(1001L);
+        assertThat(nextPage).isEmpty();
+        assertSelectCount(2);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
     @DisplayName("Обновить юзера. Должен обновиться подготовленный юзер")
     @Test
     @Rollback
@@ -128,6 +154,64 @@ class UserRepositoryTest {
         assertThat(foundUser).isEmpty();
     }
 
+    @DisplayName("Обновить юзера запросом с версией. Один update без select, устаревшая версия ничего не меняет")
+    @Test
+    @Rollback
+    @Sql({
+            "classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql"
+    })
+    void updateUserByIdAndVersion_thenAssertDmlCount() {
+        // when
+        int updated = userRepository.updateUserByIdAndVersion(1001L, 0L, "Test Test", "other reader", 111);
+        int stale = userRepository.updateUserByIdAndVersion(1001L, 0L, "Test Test", "other reader", 112);
+        int missing = userRepository.updateUserByIdAndVersion(-1L, 0L, "Test Test", "other reader", 111);
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(stale).isZero();
+        assertThat(missing).isZero();
+        assertSelectCount(0);
+        assertInsertCount(0);
+        assertUpdateCount(3);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Удалить юзера запросом. Один delete без select")
+    @Test
+    @Rollback
+    @Sql({
+            "classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql"
+    })
+    void deleteUserById_thenAssertDmlCount() {
+        // when
+        int deleted = userRepository.deleteUserById(1001L);
+        int missing = userRepository.deleteUserById(1001L);
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(missing).isZero();
+        assertSelectCount(0);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(2);
+    }
+
+    /**
+     * Выбирает пул id из person_id_seq заранее, чтобы nextval не попадал в подсчёт запросов.
+     * На свежей последовательности первый nextval отдаёт начальное значение, а пул появляется со вторым,
+     * поэтому берутся два id.
+     */
+    private void warmUpIdPool() {
+        for (int i = 0; i < 2; i++) {
+            UserEntity user = prepareValidUserEntity();
+            user.setId(null);
+            userRepository.saveAndFlush(user);
+        }
+        SQLStatementCountValidator.reset();
+    }
+
     private UserEntity prepareValidUserEntity() {
         UserEntity user = new UserEntity();
         user.setId(1L);
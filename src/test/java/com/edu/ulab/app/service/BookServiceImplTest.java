@@ -6,6 +6,7 @@ import com.edu.ulab.app.entity.UserEntity;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.impl.BookServiceImpl;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.DisplayName;
@@ -17,13 +18,14 @@ import org.mockito.Mock;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +43,9 @@ class BookServiceImplTest {
     @Mock
     BookRepository bookRepository;
 
+    @Mock
+    UserRepository userRepository;
+
     @Mock
     BookMapper bookMapper;
 
@@ -63,23 +68,54 @@ class BookServiceImplTest {
     }
 
     @Test
-    @DisplayName("Обновление книги. Должно активировать репозиторий")
-    void updateBook_shouldTriggerRepository() {
+    @DisplayName("Создание нескольких книг. Должно сохранить их одним saveAll")
+    void saveBooks_shouldTriggerRepositoryOnce() {
         // given
-        long id = 1;
+        List<BookDto> bookDtos = List.of(prepareValidBookDto(), prepareValidBookDto());
         BookEntity bookEntity = prepareValidBookEntity();
-        bookEntity.setId(id);
 
         // when
-        when(bookRepository.findById(id)).thenReturn(Optional.of(bookEntity));
-        when(bookRepository.existsById(anyLong())).thenReturn(true);
         when(bookMapper.bookDtoToBookEntity(any())).thenReturn(bookEntity);
-        bookService.updateBook(bookMapper.bookEntityToBookDto(bookEntity));
+        bookService.createBooks(bookDtos);
 
         // then
-        ArgumentCaptor<BookEntity> captor = ArgumentCaptor.forClass(BookEntity.class);
-        verify(bookRepository, times(1)).save(captor.capture());
-        assertThat(captor.getValue()).isEqualTo(bookEntity);
+        verify(bookRepository).saveAll(List.of(bookEntity, bookEntity));
+        verify(bookRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Обновление книги. Один update без предварительного select")
+    void updateBook_shouldTriggerRepository() {
+        // given
+        BookDto bookDto = prepareValidBookDto();
+        bookDto.setId(1L);
+
+        // when
+        when(bookRepository.updateBookById(1L, bookDto.getTitle(), bookDto.getAuthor(), bookDto.getPageCount()))
+                .thenReturn(1);
+        BookDto result = bookService.updateBook(bookDto);
+
+        // then
+        verify(bookRepository).updateBookById(1L, bookDto.getTitle(), bookDto.getAuthor(), bookDto.getPageCount());
+        verify(bookRepository, never()).existsById(anyLong());
+        verify(bookRepository, never()).save(any());
+        assertThat(result).isEqualTo(bookDto);
+    }
+
+    @Test
+    @DisplayName("Обновление несуществующей книги. Должно выдать исключение")
+    void updateBook_shouldThrowOnNoRowsAffected() {
+        // given
+        BookDto bookDto = prepareValidBookDto();
+        bookDto.setId(1L);
+
+        // when
+        when(bookRepository.updateBookById(anyLong(), any(), any(), anyLong())).thenReturn(0);
+
+        // then
+        assertThatThrownBy(() -> bookService.updateBook(bookDto))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("Book not found by id: 1");
     }
 
     @Test
@@ -110,20 +146,50 @@ class BookServiceImplTest {
     }
 
     @Test
-    @DisplayName("Удаление книги. Должно активировать репозиторий")
+    @DisplayName("Получение id книг юзера. Должно активировать запрос по userId")
+    void findBookIdsByUserId_shouldTriggerRepository() {
+        // given
+        long userId = 1L;
+
+        // when
+        when(bookRepository.findIdsByUserId(userId)).thenReturn(List.of(2L, 3L));
+        List<Long> bookIds = bookService.findBookIdsByUserId(userId);
+
+        // then
+        verify(bookRepository).findIdsByUserId(userId);
+        verify(bookRepository, never()).findAll();
+        assertThat(bookIds).containsExactly(2L, 3L);
+    }
+
+    @Test
+    @DisplayName("Удаление книги. Один delete без проверки существования")
     void deleteBookById_shouldTriggerRepository() {
         // given
         long id = 1L;
-        BookEntity bookEntity = prepareValidBookEntity();
-        bookEntity.setId(id);
-        bookRepository.save(bookEntity);
 
         // when
-        when(bookRepository.existsById(id)).thenReturn(true);
+        when(bookRepository.deleteBookById(id)).thenReturn(1);
         bookService.deleteBookById(id);
 
         // then
-        verify(bookRepository).deleteById(id);
+        verify(bookRepository).deleteBookById(id);
+        verify(bookRepository, never()).existsById(anyLong());
+        verify(userRepository).incrementVersionsByBookIds(List.of(id));
+    }
+
+    @Test
+    @DisplayName("Удаление несуществующей книги. Должно выдать исключение")
+    void deleteBookById_shouldThrowOnNoRowsAffected() {
+        // given
+        long id = 1L;
+
+        // when
+        when(bookRepository.deleteBookById(id)).thenReturn(0);
+
+        // then
+        assertThatThrownBy(() -> bookService.deleteBookById(id))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("Book not found by id: 1");
     }
 
     @Test
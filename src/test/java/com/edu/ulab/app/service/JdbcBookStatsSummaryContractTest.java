@@ -0,0 +1,36 @@
+package com.edu.ulab.app.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сценарии {@link JdbcPersistenceEngineContractTest} со счётчиками книг в {@code ulab_edu.person}.
+ */
+@TestPropertySource(properties = "book-stats.summary-enabled=true")
+class JdbcBookStatsSummaryContractTest extends JdbcPersistenceEngineContractTest {
+
+    @BeforeEach
+    void rebuildStatsSummary() {
+        bookService.rebuildStatsSummary();
+    }
+
+    @DisplayName("Счётчики после изменений книг. Пересчёт не должен найти расхождений")
+    @Test
+    @Rollback
+    void rebuildAfterBookChanges_thenNothingToFix() {
+        // given
+        getStatsAfterBookChanges_thenUpToDate();
+        bookService.deleteAllByUserId(1001L);
+
+        // when
+        int rebuiltUsers = bookService.rebuildStatsSummary();
+
+        // then
+        assertThat(rebuiltUsers).isZero();
+    }
+}
@@ -0,0 +1,10 @@
+package com.edu.ulab.app.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Сценарии {@link PersistenceEngineContractTest} на JdbcTemplate.
+ */
+@TestPropertySource(properties = "persistence.engine=jdbc")
+class JdbcPersistenceEngineContractTest extends PersistenceEngineContractTest {
+}
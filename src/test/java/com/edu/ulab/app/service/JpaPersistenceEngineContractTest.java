@@ -0,0 +1,10 @@
+package com.edu.ulab.app.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Сценарии {@link PersistenceEngineContractTest} на Spring Data JPA.
+ */
+@TestPropertySource(properties = "persistence.engine=jpa")
+class JpaPersistenceEngineContractTest extends PersistenceEngineContractTest {
+}
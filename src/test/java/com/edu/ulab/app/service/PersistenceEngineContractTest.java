@@ -0,0 +1,597 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.dto.UserBookStatsDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.vladmihalcea.sql.SQLStatementCountValidator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.vladmihalcea.sql.SQLStatementCountValidator.assertSelectCount;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Общие сценарии {@link UserService} и {@link BookService}.
+ * Наследники выбирают реализацию свойством {@code persistence.engine},
+ * поэтому оба движка обязаны вести себя одинаково.
+ */
+@SystemJpaTest
+@Import({UserServiceImpl.class, UserServiceImplTemplate.class,
+        BookServiceImpl.class, BookServiceImplTemplate.class,
+        UserMapperImpl.class, BookMapperImpl.class})
+@Sql({"classpath:sql/1_clear_schema.sql",
+        "classpath:sql/2_insert_person_data.sql",
+        "classpath:sql/3_insert_book_data.sql"
+})
+abstract class PersistenceEngineContractTest {
+
+    @Autowired
+    UserService userService;
+    @Autowired
+    BookService bookService;
+
+    @DisplayName("Создание юзера. Должен получить id и находиться по нему")
+    @Test
+    @Rollback
+    void createUser_thenFoundById() {
+        // when
+        UserDto createdUser = userService.createUser(prepareValidUserDto());
+
+        // then
+        assertThat(createdUser.getId()).isNotNull();
+        assertThat(userService.getUserById(createdUser.getId()))
+                .usingRecursiveComparison()
+                .isEqualTo(createdUser);
+    }
+
+    @DisplayName("Создание нескольких юзеров. Id выдаются в порядке списка")
+    @Test
+    @Rollback
+    void createUsers_thenIdsAreAscending() {
+        // when
+        List<UserDto> createdUsers = userService.createUsers(
+                new ArrayList<>(List.of(prepareValidUserDto(), prepareValidUserDto())));
+
+        // then
+        assertThat(createdUsers).hasSize(2);
+        assertThat(createdUsers.get(0).getId()).isLessThan(createdUsers.get(1).getId());
+    }
+
+    @DisplayName("Обновление юзера. Новые значения должны сохраниться")
+    @Test
+    @Rollback
+    void updateUser_thenValuesAreUpdated() {
+        // given
+        UserDto userDto = prepareValidUserDto();
+        userDto.setId(1001L);
+
+        // when
+        userService.updateUser(userDto, 0L);
+
+        // then
+        UserDto foundUser = userService.getUserById(1001L);
+        assertThat(foundUser.getFullName()).isEqualTo("Test Test");
+        assertThat(foundUser.getAge()).isEqualTo(30);
+    }
+
+    @DisplayName("Обновление несуществующего юзера. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void updateMissingUser_thenNotFound() {
+        // given
+        UserDto userDto = prepareValidUserDto();
+        userDto.setId(-1L);
+
+        // then
+        assertThatThrownBy(() -> userService.updateUser(userDto, 0L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Обновление юзера с устаревшей версией. Должно выбросить OptimisticLockingFailureException и не менять юзера")
+    @Test
+    @Rollback
+    void updateUserWithStaleVersion_thenOptimisticLockingFailure() {
+        // given
+        UserDto userDto = prepareValidUserDto();
+        userDto.setId(1001L);
+        userService.updateUser(userDto, 0L);
+        userDto.setAge(40);
+
+        // then
+        assertThatThrownBy(() -> userService.updateUser(userDto, 0L))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(userService.getUserById(1001L).getAge()).isEqualTo(30);
+        assertThat(userService.getUserVersion(1001L)).isEqualTo(1L);
+    }
+
+    @DisplayName("Получение несуществующего юзера. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void getMissingUser_thenNotFound() {
+        assertThatThrownBy(() -> userService.getUserById(-1L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Версия юзера. Растёт при обновлении юзера и при каждом изменении его книг")
+    @Test
+    @Rollback
+    void changeUserOrBooks_thenVersionIncremented() {
+        // given
+        UserDto userDto = userService.createUser(prepareValidUserDto());
+        Long userId = userDto.getId();
+        long initialVersion = userService.getUserVersion(userId);
+        List<Long> versions = new ArrayList<>();
+
+        // when
+        userDto.setAge(31);
+        userService.updateUser(userDto, initialVersion);
+        versions.add(userService.getUserVersion(userId));
+        BookDto book = bookService.createBook(prepareBookDto(userId, "author", 10));
+        versions.add(userService.getUserVersion(userId));
+        List<BookDto> books = bookService.createBooks(List.of(
+                prepareBookDto(userId, "author", 20),
+                prepareBookDto(userId, "author", 30)));
+        versions.add(userService.getUserVersion(userId));
+        book.setPageCount(11);
+        bookService.updateBook(book);
+        versions.add(userService.getUserVersion(userId));
+        bookService.updateBooks(books);
+        versions.add(userService.getUserVersion(userId));
+        bookService.deleteBookById(book.getId());
+        versions.add(userService.getUserVersion(userId));
+        bookService.deleteBooksByIds(userId, List.of(books.get(0).getId()));
+        versions.add(userService.getUserVersion(userId));
+        bookService.deleteAllByUserId(userId);
+        versions.add(userService.getUserVersion(userId));
+        bookService.deleteAllByUserId(userId);
+
+        // then
+        assertThat(initialVersion).isZero();
+        assertThat(versions).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        assertThat(userService.getUserVersion(userId)).isEqualTo(8L);
+        assertThat(userService.getUserVersion(1001L)).isZero();
+    }
+
+    @DisplayName("Версия несуществующего юзера. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void getMissingUserVersion_thenNotFound() {
+        assertThatThrownBy(() -> userService.getUserVersion(-1L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Блокировка юзера. Отдаёт ту же версию, что и чтение без блокировки")
+    @Test
+    @Rollback
+    void lockUserVersion_thenCurrentVersion() {
+        // given
+        bookService.createBook(prepareValidBookDto());
+
+        // when
+        long lockedVersion = userService.lockUserVersion(1001L);
+
+        // then
+        assertThat(lockedVersion).isEqualTo(1L).isEqualTo(userService.getUserVersion(1001L));
+    }
+
+    @DisplayName("Блокировка несуществующего юзера. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void lockMissingUserVersion_thenNotFound() {
+        assertThatThrownBy(() -> userService.lockUserVersion(-1L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Страница юзеров. Только id больше курсора, по возрастанию")
+    @Test
+    @Rollback
+    void getUsers_thenPageAfterCursor() {
+        // given
+        Long createdId = userService.createUser(prepareValidUserDto()).getId();
+
+        // when
+        List<UserDto> firstPage = userService.getUsers(0L, 1);
+        List<UserDto> secondPage = userService.getUsers(firstPage.get(0).getId(), 10);
+
+        // then
+        assertThat(firstPage).extracting(UserDto::getId).containsExactly(Math.min(1001L, createdId));
+        assertThat(secondPage).extracting(UserDto::getId).containsExactly(Math.max(1001L, createdId));
+    }
+
+    @DisplayName("Удаление юзера без книг. Больше не должен находиться")
+    @Test
+    @Rollback
+    void deleteUser_thenNotFound() {
+        // given
+        Long userId = userService.createUser(prepareValidUserDto()).getId();
+
+        // when
+        userService.deleteUserById(userId);
+
+        // then
+        assertThatThrownBy(() -> userService.getUserById(userId))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Удаление несуществующего юзера. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void deleteMissingUser_thenNotFound() {
+        assertThatThrownBy(() -> userService.deleteUserById(-1L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Юзер с id книг. Должен читаться одним select")
+    @Test
+    @Rollback
+    void getUserWithBookIds_thenSingleSelect() {
+        // given
+        SQLStatementCountValidator.reset();
+
+        // when
+        UserBookIdsDto found = userService.getUserWithBookIds(1001L);
+
+        // then
+        assertThat(found).isEqualTo(new UserBookIdsDto(1001L, List.of(2002L, 3003L), 0L));
+        assertSelectCount(1);
+    }
+
+    @DisplayName("Юзер без книг с id книг. Список книг пустой")
+    @Test
+    @Rollback
+    void getUserWithoutBooksWithBookIds_thenEmptyBookIds() {
+        // given
+        Long userId = userService.createUser(prepareValidUserDto()).getId();
+
+        // when
+        UserBookIdsDto found = userService.getUserWithBookIds(userId);
+
+        // then
+        assertThat(found).isEqualTo(new UserBookIdsDto(userId, List.of(), 0L));
+    }
+
+    @DisplayName("Несуществующий юзер с id книг. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void getMissingUserWithBookIds_thenNotFound() {
+        assertThatThrownBy(() -> userService.getUserWithBookIds(-1L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Выгрузка юзеров с id книг. Юзер без книг тоже попадает в выгрузку")
+    @Test
+    @Rollback
+    void forEachUserWithBookIds_thenAllUsersVisited() {
+        // given
+        Long userId = userService.createUser(prepareValidUserDto()).getId();
+        List<UserBookIdsDto> exported = new ArrayList<>();
+
+        // when
+        userService.forEachUserWithBookIds(exported::add);
+
+        // then
+        assertThat(exported).containsExactlyInAnyOrder(
+                new UserBookIdsDto(1001L, List.of(2002L, 3003L), 0L),
+                new UserBookIdsDto(userId, List.of(), 0L));
+    }
+
+    @DisplayName("Юзер с id книг после записи книги. Версия совпадает с версией юзера в обеих выборках")
+    @Test
+    @Rollback
+    void writeBook_thenUserBookIdsCarryVersion() {
+        // given
+        BookDto createdBook = bookService.createBook(prepareValidBookDto());
+        List<UserBookIdsDto> exported = new ArrayList<>();
+
+        // when
+        UserBookIdsDto found = userService.getUserWithBookIds(1001L);
+        userService.forEachUserWithBookIds(exported::add);
+
+        // then
+        assertThat(found.getBookIds()).contains(createdBook.getId());
+        assertThat(found.getVersion()).isEqualTo(1L);
+        assertThat(exported).containsExactly(found);
+    }
+
+    @DisplayName("Создание книги. Должна получить id и находиться по нему")
+    @Test
+    @Rollback
+    void createBook_thenFoundById() {
+        // when
+        BookDto createdBook = bookService.createBook(prepareValidBookDto());
+
+        // then
+        assertThat(createdBook.getId()).isNotNull();
+        assertThat(bookService.getBookById(createdBook.getId()))
+                .usingRecursiveComparison()
+                .isEqualTo(createdBook);
+    }
+
+    @DisplayName("Создание нескольких книг. Все должны найтись у юзера")
+    @Test
+    @Rollback
+    void createBooks_thenFoundByUserId() {
+        // when
+        List<BookDto> createdBooks = bookService.createBooks(
+                new ArrayList<>(List.of(prepareValidBookDto(), prepareValidBookDto())));
+
+        // then
+        assertThat(bookService.findBookIdsByUserId(1001L))
+                .containsAll(createdBooks.stream().map(BookDto::getId).toList())
+                .hasSize(4);
+    }
+
+    @DisplayName("Обновление книги. Новые значения должны сохраниться")
+    @Test
+    @Rollback
+    void updateBook_thenValuesAreUpdated() {
+        // given
+        BookDto bookDto = prepareValidBookDto();
+        bookDto.setId(2002L);
+
+        // when
+        bookService.updateBook(bookDto);
+
+        // then
+        BookDto foundBook = bookService.getBookById(2002L);
+        assertThat(foundBook.getTitle()).isEqualTo("test");
+        assertThat(foundBook.getPageCount()).isEqualTo(1000);
+    }
+
+    @DisplayName("Обновление несуществующей книги. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void updateMissingBook_thenNotFound() {
+        // given
+        BookDto bookDto = prepareValidBookDto();
+        bookDto.setId(-1L);
+
+        // then
+        assertThatThrownBy(() -> bookService.updateBook(bookDto))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Обновление нескольких книг. Новые значения должны сохраниться у обеих")
+    @Test
+    @Rollback
+    void updateBooks_thenValuesAreUpdated() {
+        // given
+        BookDto first = prepareValidBookDto();
+        first.setId(2002L);
+        BookDto second = prepareValidBookDto();
+        second.setId(3003L);
+        second.setTitle("second");
+
+        // when
+        bookService.updateBooks(List.of(first, second));
+
+        // then
+        assertThat(bookService.findBooksByUserId(1001L))
+                .extracting(BookDto::getId, BookDto::getTitle, BookDto::getPageCount)
+                .containsExactlyInAnyOrder(
+                        tuple(2002L, "test", 1000L),
+                        tuple(3003L, "second", 1000L));
+    }
+
+    @DisplayName("Обновление нескольких книг с несуществующей. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void updateBooksWithMissing_thenNotFound() {
+        // given
+        BookDto existing = prepareValidBookDto();
+        existing.setId(2002L);
+        BookDto missing = prepareValidBookDto();
+        missing.setId(-1L);
+
+        // then
+        assertThatThrownBy(() -> bookService.updateBooks(List.of(existing, missing)))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Получение несуществующей книги. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void getMissingBook_thenNotFound() {
+        assertThatThrownBy(() -> bookService.getBookById(-1L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Удаление несуществующей книги. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void deleteMissingBook_thenNotFound() {
+        assertThatThrownBy(() -> bookService.deleteBookById(-1L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Книги юзера. Должны найтись обе книги")
+    @Test
+    @Rollback
+    void findBooksByUserId_thenBothFound() {
+        // when
+        List<BookDto> books = bookService.findBooksByUserId(1001L);
+
+        // then
+        assertThat(books).extracting(BookDto::getId).containsExactlyInAnyOrder(2002L, 3003L);
+        assertThat(books).extracting(BookDto::getUserId).containsOnly(1001L);
+    }
+
+    @DisplayName("Id книг страницы юзеров. Юзер без книг в ответ не попадает")
+    @Test
+    @Rollback
+    void findBookIdsByUserIds_thenGroupedByUser() {
+        // when
+        Map<Long, List<Long>> bookIds = bookService.findBookIdsByUserIds(List.of(1001L, -1L));
+
+        // then
+        assertThat(bookIds).containsOnlyKeys(1001L);
+        assertThat(bookIds.get(1001L)).containsExactly(2002L, 3003L);
+    }
+
+    @DisplayName("Удаление книг юзера. Должно вернуть число удалённых")
+    @Test
+    @Rollback
+    void deleteAllByUserId_thenCountReturned() {
+        // when
+        int deleted = bookService.deleteAllByUserId(1001L);
+
+        // then
+        assertThat(deleted).isEqualTo(2);
+        assertThat(bookService.findBookIdsByUserId(1001L)).isEmpty();
+    }
+
+    @DisplayName("Удаление книг по id. Удаляются только книги этого юзера")
+    @Test
+    @Rollback
+    void deleteBooksByIds_thenOnlyUserBooksDeleted() {
+        // when
+        int deletedOfOtherUser = bookService.deleteBooksByIds(-1L, List.of(2002L));
+        int deleted = bookService.deleteBooksByIds(1001L, List.of(2002L));
+
+        // then
+        assertThat(deletedOfOtherUser).isZero();
+        assertThat(deleted).isEqualTo(1);
+        assertThat(bookService.findBookIdsByUserId(1001L)).containsExactly(3003L);
+    }
+
+    @DisplayName("Статистика юзера. Число книг, сумма страниц и авторы по убыванию числа книг")
+    @Test
+    @Rollback
+    void getStatsByUserId_thenAggregated() {
+        // when
+        UserBookStatsDto stats = bookService.getStatsByUserId(1001L);
+
+        // then
+        assertThat(stats.getUserId()).isEqualTo(1001L);
+        assertThat(stats.getBookCount()).isEqualTo(2);
+        assertThat(stats.getPageSum()).isEqualTo(5500 + 6655);
+        assertThat(stats.getTopAuthors()).containsExactly("author", "on more author");
+    }
+
+    @DisplayName("Статистика несуществующего юзера. Должно выбросить NotFoundException")
+    @Test
+    @Rollback
+    void getStatsOfMissingUser_thenNotFound() {
+        assertThatThrownBy(() -> bookService.getStatsByUserId(-1L))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @DisplayName("Статистика после создания, обновления и удаления книг. Должна учитывать все изменения")
+    @Test
+    @Rollback
+    void getStatsAfterBookChanges_thenUpToDate() {
+        // given
+        Long userId = userService.createUser(prepareValidUserDto()).getId();
+        List<BookDto> books = bookService.createBooks(List.of(
+                prepareBookDto(userId, "first", 100),
+                prepareBookDto(userId, "first", 200),
+                prepareBookDto(userId, "second", 50),
+                prepareBookDto(userId, "third", 10)));
+        BookDto secondAuthorBook = books.get(2);
+        secondAuthorBook.setPageCount(70);
+
+        // when
+        bookService.updateBook(secondAuthorBook);
+        bookService.deleteBookById(books.get(0).getId());
+        bookService.deleteBooksByIds(userId, List.of(books.get(3).getId()));
+        bookService.createBook(prepareBookDto(userId, "second", 30));
+
+        // then
+        UserBookStatsDto stats = bookService.getStatsByUserId(userId);
+        assertThat(stats.getBookCount()).isEqualTo(3);
+        assertThat(stats.getPageSum()).isEqualTo(200 + 70 + 30);
+        assertThat(stats.getTopAuthors()).containsExactly("second", "first");
+    }
+
+    @DisplayName("Страница статистики. Юзер без книг с нулями, после удаления всех книг тоже")
+    @Test
+    @Rollback
+    void getStats_thenPageAfterCursor() {
+        // given
+        Long userId = userService.createUser(prepareValidUserDto()).getId();
+        bookService.deleteAllByUserId(1001L);
+
+        // when
+        List<UserBookStatsDto> firstPage = bookService.getStats(0L, 1);
+        List<UserBookStatsDto> secondPage = bookService.getStats(firstPage.get(0).getUserId(), 10);
+
+        // then
+        assertThat(firstPage).extracting(UserBookStatsDto::getUserId).containsExactly(Math.min(1001L, userId));
+        assertThat(secondPage).extracting(UserBookStatsDto::getUserId).containsExactly(Math.max(1001L, userId));
+        assertThat(List.of(firstPage.get(0), secondPage.get(0)))
+                .extracting(UserBookStatsDto::getBookCount, UserBookStatsDto::getPageSum, UserBookStatsDto::getTopAuthors)
+                .containsOnly(tuple(0L, 0L, List.of()));
+    }
+
+    @DisplayName("Страница статистики с книгами. Авторы считаются по каждому юзеру отдельно")
+    @Test
+    @Rollback
+    void getStats_thenTopAuthorsPerUser() {
+        // given
+        Long userId = userService.createUser(prepareValidUserDto()).getId();
+        bookService.createBooks(List.of(
+                prepareBookDto(userId, "author", 1),
+                prepareBookDto(userId, "a", 2),
+                prepareBookDto(userId, "b", 3),
+                prepareBookDto(userId, "c", 4)));
+
+        // when
+        Map<Long, UserBookStatsDto> stats = bookService.getStats(0L, 10)
+                .stream()
+                .collect(Collectors.toMap(UserBookStatsDto::getUserId, Function.identity()));
+
+        // then
+        assertThat(stats.get(1001L).getTopAuthors()).containsExactly("author", "on more author");
+        assertThat(stats.get(userId).getBookCount()).isEqualTo(4);
+        assertThat(stats.get(userId).getPageSum()).isEqualTo(10);
+        assertThat(stats.get(userId).getTopAuthors()).hasSize(BookService.TOP_AUTHORS_LIMIT);
+    }
+
+    private BookDto prepareBookDto(Long userId, String author, long pageCount) {
+        return BookDto.builder()
+                .userId(userId)
+                .title("test")
+                .author(author)
+                .pageCount(pageCount)
+                .build();
+    }
+
+    private UserDto prepareValidUserDto() {
+        return UserDto.builder()
+                .fullName("Test Test")
+                .title("reader")
+                .age(30)
+                .build();
+    }
+
+    private BookDto prepareValidBookDto() {
+        return BookDto.builder()
+                .userId(1001L)
+                .title("test")
+                .author("Test Author")
+                .pageCount(1000)
+                .build();
+    }
+}
@@ -12,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -20,8 +21,9 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -61,26 +63,51 @@ class UserServiceImplTest {
     }
 
     @Test
-    @DisplayName("Обновление юзера. Должно активировать репозиторий")
+    @DisplayName("Обновление юзера. Один update без предварительного select")
     void updateUser_shouldTriggerRepository() {
         // given
-        long id = 1;
-        UserEntity userEntity = prepareValidUserEntity();
-        userEntity.setId(id);
+        UserDto userDto = prepareValidUserDto();
+
+        // when
+        when(userRepository.updateUserByIdAndVersion(1L, 3L, "Kirill", "some title", 50)).thenReturn(1);
+        UserDto result = userService.updateUser(userDto, 3L);
+
+        // then
+        verify(userRepository).updateUserByIdAndVersion(1L, 3L, "Kirill", "some title", 50);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).existsById(anyLong());
+        verify(userRepository, never()).save(any());
+        assertThat(result).isEqualTo(userDto);
+    }
 
+    @Test
+    @DisplayName("Обновление несуществующего юзера. Должно выдать исключение")
+    void updateUser_shouldThrowOnNoRowsAffected() {
+        // given
         UserDto userDto = prepareValidUserDto();
 
         // when
-        when(userRepository.findById(id)).thenReturn(Optional.of(userEntity));
-        when(userRepository.existsById(anyLong())).thenReturn(true);
-        when(userMapper.userDtoToUserEntity(any())).thenReturn(userEntity);
-        when(userMapper.userEntityToUserDto(any())).thenReturn(userDto);
-        userService.updateUser(userMapper.userEntityToUserDto(userEntity));
+        when(userRepository.updateUserByIdAndVersion(anyLong(), anyLong(), any(), any(), anyInt())).thenReturn(0);
 
         // then
-        ArgumentCaptor<UserEntity> captor = ArgumentCaptor.forClass(UserEntity.class);
-        verify(userRepository, times(1)).save(captor.capture());
-        assertThat(captor.getValue()).isEqualTo(userEntity);
+        assertThatThrownBy(() -> userService.updateUser(userDto, 0L))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("User not found by id: 1");
+    }
+
+    @Test
+    @DisplayName("Обновление юзера с устаревшей версией. Должно выдать OptimisticLockingFailureException")
+    void updateUser_shouldThrowOnStaleVersion() {
+        // given
+        UserDto userDto = prepareValidUserDto();
+
+        // when
+        when(userRepository.updateUserByIdAndVersion(anyLong(), anyLong(), any(), any(), anyInt())).thenReturn(0);
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        // then
+        assertThatThrownBy(() -> userService.updateUser(userDto, 3L))
+                .isInstanceOf(OptimisticLockingFailureException.class);
     }
 
     @Test
@@ -101,19 +128,33 @@ class UserServiceImplTest {
     }
 
     @Test
+    @DisplayName("Удаление юзера. Один delete без проверки существования")
     void deleteUserById_shouldTriggerRepository() {
         // given
         long id = 1L;
-        UserEntity userEntity = prepareValidUserEntity();
-        userEntity.setId(id);
-        userRepository.save(userEntity);
 
         // when
-        when(userRepository.existsById(id)).thenReturn(true);
+        when(userRepository.deleteUserById(id)).thenReturn(1);
         userService.deleteUserById(id);
 
         // then
-        verify(userRepository).deleteById(id);
+        verify(userRepository).deleteUserById(id);
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Удаление несуществующего юзера. Должно выдать исключение")
+    void deleteUserById_shouldThrowOnNoRowsAffected() {
+        // given
+        long id = 1L;
+
+        // when
+        when(userRepository.deleteUserById(id)).thenReturn(0);
+
+        // then
+        assertThatThrownBy(() -> userService.deleteUserById(id))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("User not found by id: 1");
     }
 
     @Test
@@ -0,0 +1,48 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты ETag юзера с книгами {@link UserBookETag}.
+ */
+@UnitTest
+@DisplayName("Testing user book ETag.")
+class UserBookETagTest {
+
+    @Test
+    @DisplayName("ETag одной версии в разных форматах. Различается по выбранному из Accept формату")
+    void of_thenDependsOnRepresentation() {
+        assertThat(UserBookETag.of(5L, null)).isEqualTo("\"5-json\"");
+        assertThat(UserBookETag.of(5L, "*/*")).isEqualTo("\"5-json\"");
+        assertThat(UserBookETag.of(5L, "application/x-jackson-smile")).isEqualTo("\"5-x-jackson-smile\"");
+        assertThat(UserBookETag.of(5L, "application/cbor")).isEqualTo("\"5-cbor\"");
+        assertThat(UserBookETag.of(5L, "application/json;q=0.5, application/x-protobuf"))
+                .isEqualTo("\"5-x-protobuf\"");
+    }
+
+    @Test
+    @DisplayName("If-None-Match со списком и слабым тегом. Совпадает только тег того же формата")
+    void matchesNoneMatch_thenWeakComparison() {
+        assertThat(UserBookETag.matchesNoneMatch("\"4-json\", W/\"5-json\"", "\"5-json\"")).isTrue();
+        assertThat(UserBookETag.matchesNoneMatch("*", "\"5-json\"")).isTrue();
+        assertThat(UserBookETag.matchesNoneMatch("\"5-cbor\"", "\"5-json\"")).isFalse();
+        assertThat(UserBookETag.matchesNoneMatch(null, "\"5-json\"")).isFalse();
+    }
+
+    @Test
+    @DisplayName("If-Match с форматом, без формата и слабый. Версия или PreconditionFailedException")
+    void parseIfMatch_thenVersionPrefix() {
+        assertThat(UserBookETag.parseIfMatch("\"5-x-protobuf\"")).isEqualTo(5L);
+        assertThat(UserBookETag.parseIfMatch("\"5\"")).isEqualTo(5L);
+        assertThat(UserBookETag.parseIfMatch("*")).isNull();
+        assertThat(UserBookETag.parseIfMatch(null)).isNull();
+        assertThatThrownBy(() -> UserBookETag.parseIfMatch("W/\"5-json\""))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+}
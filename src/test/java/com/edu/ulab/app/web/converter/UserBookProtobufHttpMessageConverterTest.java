@@ -0,0 +1,131 @@
+package com.edu.ulab.app.web.converter;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.web.protobuf.UserBookProto;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserBookUpdateRequest;
+import com.edu.ulab.app.web.response.BaseWebResponse;
+import com.edu.ulab.app.web.response.UserBookPageResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.edu.ulab.app.web.constant.WebConstant.APPLICATION_PROTOBUF_VALUE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты {@link UserBookProtobufHttpMessageConverter}.
+ */
+@UnitTest
+class UserBookProtobufHttpMessageConverterTest {
+    private static final MediaType PROTOBUF = MediaType.valueOf(APPLICATION_PROTOBUF_VALUE);
+
+    UserBookProtobufHttpMessageConverter converter = new UserBookProtobufHttpMessageConverter();
+
+    @Test
+    @DisplayName("Прочитать запрос создания. Юзер и книги перенесены в модель запроса")
+    void readCreateRequest_thenMapped() throws IOException {
+        // given
+        MockHttpInputMessage inputMessage = new MockHttpInputMessage(prepareRequest().toByteArray());
+
+        // when
+        UserBookRequest request = (UserBookRequest) converter.read(UserBookRequest.class, inputMessage);
+
+        // then
+        assertThat(request.getUserRequest().getFullName()).isEqualTo("Kirill");
+        assertThat(request.getUserRequest().getAge()).isEqualTo(50);
+        assertThat(request.getBookRequests()).hasSize(2);
+        assertThat(request.getBookRequests().get(1).getPageCount()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Прочитать запрос обновления. id юзера перенесён, без id остаётся null")
+    void readUpdateRequest_thenIdMapped() throws IOException {
+        // given
+        UserBookProto.UserBookRequest withId = prepareRequest().toBuilder()
+                .setUserRequest(prepareRequest().getUserRequest().toBuilder().setId(7L))
+                .build();
+
+        // when
+        UserBookUpdateRequest request = (UserBookUpdateRequest) converter.read(UserBookUpdateRequest.class,
+                new MockHttpInputMessage(withId.toByteArray()));
+        UserBookUpdateRequest requestWithoutId = (UserBookUpdateRequest) converter.read(UserBookUpdateRequest.class,
+                new MockHttpInputMessage(prepareRequest().toByteArray()));
+
+        // then
+        assertThat(request.getUserRequest().getId()).isEqualTo(7L);
+        assertThat(requestWithoutId.getUserRequest().getId()).isNull();
+    }
+
+    @Test
+    @DisplayName("Записать страницу юзеров. Сообщение читается обратно с теми же id")
+    void writePage_thenParsable() throws IOException {
+        // given
+        UserBookPageResponse page = UserBookPageResponse.builder()
+                .users(List.of(UserBookResponse.builder()
+                        .userId(1L)
+                        .booksIdList(List.of(10L, 11L))
+                        .build()))
+                .nextAfter(1L)
+                .build();
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        // when
+        converter.write(page, PROTOBUF, outputMessage);
+
+        // then
+        UserBookProto.UserBookPageResponse parsed =
+                UserBookProto.UserBookPageResponse.parseFrom(outputMessage.getBodyAsBytes());
+        assertThat(parsed.getUsers(0).getBooksIdListList()).containsExactly(10L, 11L);
+        assertThat(parsed.getNextAfter()).isEqualTo(1L);
+        assertThat(outputMessage.getHeaders().getContentType()).isEqualTo(PROTOBUF);
+    }
+
+    @Test
+    @DisplayName("Записать ошибку. Текст ошибки в ErrorResponse")
+    void writeError_thenErrorResponse() throws IOException {
+        // given
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        // when
+        converter.write(new BaseWebResponse("not found"), PROTOBUF, outputMessage);
+
+        // then
+        assertThat(UserBookProto.ErrorResponse.parseFrom(outputMessage.getBodyAsBytes()).getErrorMessage())
+                .isEqualTo("not found");
+    }
+
+    @Test
+    @DisplayName("Прочитать мусор. HttpMessageNotReadableException, поддерживаются только модели контроллера")
+    void readGarbage_thenNotReadable() {
+        // then
+        assertThatThrownBy(() -> converter.read(UserBookRequest.class, new MockHttpInputMessage(new byte[]{(byte) 0xff})))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+        assertThat(converter.canWrite(String.class, PROTOBUF)).isFalse();
+    }
+
+    private static UserBookProto.UserBookRequest prepareRequest() {
+        return UserBookProto.UserBookRequest.newBuilder()
+                .setUserRequest(UserBookProto.UserRequest.newBuilder()
+                        .setFullName("Kirill")
+                        .setTitle("reader")
+                        .setAge(50))
+                .addBookRequests(UserBookProto.BookRequest.newBuilder()
+                        .setTitle("first")
+                        .setAuthor("author")
+                        .setPageCount(100))
+                .addBookRequests(UserBookProto.BookRequest.newBuilder()
+                        .setTitle("second")
+                        .setAuthor("author")
+                        .setPageCount(200))
+                .build();
+    }
+}
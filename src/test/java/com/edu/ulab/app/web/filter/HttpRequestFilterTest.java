@@ -0,0 +1,94 @@
+package com.edu.ulab.app.web.filter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.edu.ulab.app.config.MetricsConfig;
+import com.edu.ulab.app.config.UnitTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static com.edu.ulab.app.web.constant.WebConstant.MDC_BOOK_COUNT;
+import static com.edu.ulab.app.web.constant.WebConstant.MDC_REQUEST_ID;
+import static com.edu.ulab.app.web.constant.WebConstant.MDC_USER_ID;
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты итогового лога запроса {@link HttpRequestFilter}.
+ */
+@UnitTest
+class HttpRequestFilterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    HttpRequestFilter filter = new HttpRequestFilter(meterRegistry, true);
+    ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    Logger logger = (Logger) LoggerFactory.getLogger(HttpRequestFilter.class);
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    @DisplayName("Запрос. Одна итоговая строка с данными из MDC и число SQL в метрике, MDC очищается")
+    void doFilter_thenOneSummaryLine() throws Exception {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/user/get/1");
+        request.addHeader(RQID, "rq-1");
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                MDC.put(MDC_USER_ID, "1");
+                MDC.put(MDC_BOOK_COUNT, "3");
+            }
+        });
+
+        // when
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // then
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getFormattedMessage())
+                .startsWith("requestId=rq-1 operation=GET /api/v1/user/get/1 status=200 userId=1 books=3 sql=0 durationMs=");
+        assertThat(meterRegistry.get(MetricsConfig.REQUEST_SQL_STATEMENTS).summary().count()).isEqualTo(1);
+        assertThat(MDC.get(MDC_REQUEST_ID)).isNull();
+        assertThat(MDC.get(MDC_USER_ID)).isNull();
+        assertThat(MDC.get(MDC_BOOK_COUNT)).isNull();
+    }
+
+    @Test
+    @DisplayName("Подсчёт SQL выключен. Метрика не пишется, в строке лога sql=-")
+    void doFilter_whenSqlStatementsDisabled_thenNoSummary() throws Exception {
+        // given
+        HttpRequestFilter disabledFilter = new HttpRequestFilter(meterRegistry, false);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/user/get/1");
+        request.addHeader(RQID, "rq-2");
+
+        // when
+        disabledFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // then
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getFormattedMessage()).contains(" sql=- ");
+        assertThat(meterRegistry.find(MetricsConfig.REQUEST_SQL_STATEMENTS).summary()).isNull();
+    }
+}